@@ -1,2 +1,2 @@
-javac -d out/production/ics4u-assignment -target 1.8 -source 1.8 src/tetris/game/*.java src/tetris/game/randomizer/*.java src/tetris/controls/*.java src/tetris/gui/widget/*.java src/tetris/gui/*.java src/tetris/util/*.java src/tetris/*.java src/tetris/music/*.java
+javac -d out/production/ics4u-assignment -target 1.8 -source 1.8 src/tetris/game/*.java src/tetris/game/randomizer/*.java src/tetris/controls/*.java src/tetris/gui/widget/*.java src/tetris/gui/*.java src/tetris/util/*.java src/tetris/*.java src/tetris/music/*.java src/tetris/sim/*.java src/tetris/replay/*.java src/tetris/net/*.java
 java -cp out/production/ics4u-assignment tetris.Main -Dsun.java2d.uiScale=1.0
@@ -84,6 +84,7 @@ public class GameFrame extends JFrame {
         this.add(panel);
         panel.setPhysicsFPS(144); //Set physics update rate to 144 FPS
         panel.setRenderFPS(Math.min(60, displayMode.getRefreshRate()));  //Set the render FPS to 60 or the monitor's refresh rate, whichever is lower
+        panel.startGameLoop(); //Start the game loop now that it knows how often to update and render
 
         this.setTitle("Titres!"); //set title for frame
         this.setUndecorated(true); //remove window border
@@ -95,6 +96,7 @@ public class GameFrame extends JFrame {
         this.setExtendedState(JFrame.MAXIMIZED_BOTH); //maximize window
 
         this.setVisible(true); //makes window visible to user
+        panel.startActiveRendering(this); //The game draws its frames itself, now that the window exists
 
         this.setIconImage(Assets.Gui.LOGO.get()); //set icon for frame
     }
@@ -8,6 +8,9 @@ package tetris;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferStrategy;
 
 import tetris.controls.KeyboardInput;
 import tetris.controls.MouseInput;
@@ -16,6 +19,9 @@ import tetris.gui.Gui;
 import tetris.gui.GuiWelcome;
 import tetris.music.MusicPlayer;
 import tetris.util.Assets;
+import tetris.util.BackBuffer;
+import tetris.util.LatencyStats;
+import tetris.util.LoopScheduler;
 import tetris.util.Util;
 
 
@@ -41,12 +47,30 @@ public class GamePanel extends JPanel implements Runnable {
     public int horizontalPadding;
 
     public Thread gameThread; // Thread that game is running on
-    public Image image; // Image that the game displays on
-    public Graphics2D g2d; // General graphics object
+    //Image that every frame is drawn on at 1920x1080 before it is scaled onto the screen, reused for every frame
+    private final BackBuffer backBuffer = new BackBuffer(INTERNAL_WIDTH, INTERNAL_HEIGHT);
+
+    //Buffers of the window that frames are shown with when rendering actively, null if frames are shown by paint()
+    //With active rendering, the game thread draws and shows every frame itself instead of asking Swing to repaint
+    private volatile BufferStrategy bufferStrategy;
 
     //# of nanoseconds between each render/physics update frame
-    private double renderNS;
-    private double physicsNS;
+    //Volatile since the settings menu can change them from the Swing thread
+    private volatile double renderNS;
+    private volatile double physicsNS;
+
+    //# of physics updates per second
+    private int physicsFPS;
+
+    //Most physics updates the game loop can be behind. If it falls further behind (the computer was too slow or the
+    //game was paused by the OS), the extra time is skipped, so catching up can't take longer and longer
+    private static final int MAX_CATCH_UP_UPDATES = 8;
+
+    //The System.nanoTime() that the current physics state belongs to, used to interpolate between updates when drawing
+    private volatile long physicsTime;
+
+    //Number of physics updates skipped because the game loop fell too far behind
+    private volatile long skippedUpdates;
 
     //Displayed gui on the screen. This technique allows us to easily separate menus/guis.
     private Gui gui;
@@ -54,6 +78,23 @@ public class GamePanel extends JPanel implements Runnable {
     //Keyboard Input class
     public KeyboardInput keyboardInput;
 
+    //Input latency of the game actions, shown by pressing F3
+    public LatencyStats latencyStats;
+
+    //Is the latency overlay shown? Toggled by the game thread, read when painting
+    private volatile boolean showLatency;
+    //Was F3 held in the last physics update? Used to toggle the overlay once per press
+    private boolean latencyKeyHeld;
+    //Was the latency overlay ever shown? Only then is the latency printed when the game exits
+    private volatile boolean latencyShown;
+    //Prints the latency when the game exits even if the overlay was never shown: -Dtitres.latency=true
+    private static final String LATENCY_PROPERTY = "titres.latency";
+    //Waits between updates and paints of the game loop
+    private final LoopScheduler scheduler = new LoopScheduler();
+
+    //Font of the latency overlay. Monospaced so the columns line up
+    private final Font latencyFont = new Font(Font.MONOSPACED, Font.BOLD, 22);
+
     //Handles the game backgrounds in the Gui
     private GameBackground gameBackground;
 
@@ -66,6 +107,9 @@ public class GamePanel extends JPanel implements Runnable {
     // This is called maximum because if the computer is too slow, the render FPS will be lower than the user setting
     private int maxRenderFPS;
 
+    //Are replays of solo games recorded? Volatile since it is set by Main and read by the game thread
+    private volatile boolean recordingReplays;
+
     public GamePanel(int width, int height, double scale, int horizontalPadding, int verticalPadding) {
         GamePanel.instance = this; //Set the GamePanel instance
 
@@ -83,6 +127,7 @@ public class GamePanel extends JPanel implements Runnable {
         this.setFocusable(true); //make everything in this class appear on the screen
 
         keyboardInput = new KeyboardInput();
+        latencyStats = new LatencyStats();
 
         this.addKeyListener(keyboardInput); //start listening for keyboard input
         this.requestFocus(); //Make window the active window
@@ -105,53 +150,102 @@ public class GamePanel extends JPanel implements Runnable {
 
         //Display Main Menu
         displayGui(new GuiWelcome());
+    }
 
+    //Starts the game loop. Called by GameFrame once the physics and render FPS are set, as the loop can't run without them
+    public void startGameLoop(){
         //make this class run at the same time as other classes (without this each class would "pause" while another class runs). By using threading we can remove lag, and also allows us to do features like display timers in real time!
         gameThread = new Thread(this);
         gameThread.start();
-
     }
     //run() method is what makes the game continue running without end. It calls other methods to run physics and update the screen
     //Unlike the template run method, this one separates the physics and render updates
     @Override
     public void run() {
-        //the CPU runs our game code too quickly - we need to slow it down! The following lines of code "force" the computer to get stuck in a loop for short intervals between calling other methods to update the screen.
+        //the CPU runs our game code too quickly - we need to slow it down! Between updates, the scheduler waits until the next physics update or repaint is due, without using the CPU.
+        //Physics uses a fixed time step: the time that passes is added to an accumulator, and one update is run for every physicsNS in it, so the game runs at the same speed whatever the render FPS is.
         long lastTime = System.nanoTime();
+        long nextRender = lastTime;
 
-        double deltaRender = 0;
-        double deltaPhysics = 0;
+        double physicsAccumulator = 0; //Nanoseconds of game time that haven't been simulated yet
         long now;
 
         while (true) { //this is the infinite game loop
             now = System.nanoTime();
-            deltaRender = deltaRender + (now - lastTime) / renderNS;
-            deltaPhysics = deltaPhysics + (now - lastTime) / physicsNS;
+            physicsAccumulator += now - lastTime;
             lastTime = now;
 
-            //only move objects around if enough time has passed
-            if (deltaPhysics >= 1) {
+            //Read the step sizes once, so a change from the settings menu doesn't happen in the middle of an iteration
+            double stepNS = physicsNS;
+            double frameNS = renderNS;
+
+            //If the loop is too far behind, skip the extra time instead of running ever more updates to catch up
+            if (physicsAccumulator > MAX_CATCH_UP_UPDATES * stepNS) {
+                skippedUpdates += (long) (physicsAccumulator / stepNS) - MAX_CATCH_UP_UPDATES;
+                physicsAccumulator = MAX_CATCH_UP_UPDATES * stepNS;
+            }
+
+            //run every physics update that is due, so the game catches up after a slow frame
+            while (physicsAccumulator >= stepNS) {
                 update();
-                deltaPhysics--;
+                physicsAccumulator -= stepNS;
             }
+            physicsTime = now - (long) physicsAccumulator; //The time that the state after the last update belongs to
+
             //only update the screen if enough time has passed
-            if(deltaRender >= 1) {
-                repaint();
-                deltaRender--;
+            if (now - nextRender >= 0) {
+                if (bufferStrategy != null) {
+                    render(); //Draw and show the frame on this thread
+                } else {
+                    repaint(); //Swing will call paint() soon
+                }
+                nextRender += (long) frameNS;
+                if (now - nextRender >= 0) { //Far behind, so don't repaint many times in a row
+                    nextRender = now + (long) frameNS;
+                }
             }
+
+            //Wait until the next physics update or repaint is due
+            long nextPhysics = now + (long) (stepNS - physicsAccumulator);
+            scheduler.waitUntil(nextPhysics - nextRender < 0 ? nextPhysics : nextRender);
         }
     }
 
     //This method is called every physics tick. It updates the game's logic and keeps the game consistent regardless of render FPS
     public void update(){
         this.gui.update();
+
+        //F3 shows or hides the latency overlay
+        boolean latencyKey = keyboardInput.isKeyPressed(KeyEvent.VK_F3);
+        if (latencyKey && !latencyKeyHeld) {
+            showLatency = !showLatency;
+            latencyShown = true;
+        }
+        latencyKeyHeld = latencyKey;
     }
 
     //Method to set the physics framerate
     //Calculates the number of nanoseconds between each physics update
     public void setPhysicsFPS(int fps){
+        this.physicsFPS = fps;
         physicsNS = 1e9 / fps; //1e9 nanoseconds per fps frames
     }
 
+    //Get the number of physics updates per second
+    public int getPhysicsFPS(){
+        return physicsFPS;
+    }
+
+    /**
+     * Get how far the time is between the last physics update and the next one, used to draw movement smoothly.
+     * Things that move are drawn between where they were before the last update (0) and where they are now (1).
+     *
+     * @return The fraction of a physics update since the last update, from 0 to 1
+     */
+    public double getInterpolation(){
+        return Util.clamp((float) ((System.nanoTime() - physicsTime) / physicsNS), 0, 1);
+    }
+
     //Method to set the render framerate
     //Calculates the number of nanoseconds between each render update
     public void setRenderFPS(int fps){
@@ -159,23 +253,115 @@ public class GamePanel extends JPanel implements Runnable {
         renderNS = 1e9 / fps;  //1e9 nanoseconds per fps frames
     }
 
-    //paint is a method in java.awt library that we are overriding. It is a special method - it is called automatically in the background in order to update what appears in the window. You NEVER call paint() yourself
-    public void paint(Graphics g){
-        //we are using "double buffering" here - if we draw images directly onto the screen, it takes time and the human eye can actually notice flashes of lag as each pixel on the screen is drawn one at a time. Instead, we are going to draw images OFF the screen (outside dimensions of the frame), then simply move the image on screen as needed.
-        image = createImage(INTERNAL_WIDTH, INTERNAL_HEIGHT); //draw off-screen
+    /**
+     * Switches to active rendering: the game thread draws every frame and shows it with the buffers of the window,
+     * instead of asking Swing to repaint. If the window can't create buffers, the game keeps using paint().
+     *
+     * @param window The window the game is in, which must be visible
+     */
+    public void startActiveRendering(Window window){
+        try {
+            window.setIgnoreRepaint(true); //The game draws the window itself, so the OS asking for a repaint is ignored
+            this.setIgnoreRepaint(true);
+            window.createBufferStrategy(2);
+            bufferStrategy = window.getBufferStrategy();
+        } catch (IllegalStateException | AWTError e) { //No buffers for this window, so Swing keeps painting it
+            window.setIgnoreRepaint(false);
+            this.setIgnoreRepaint(false);
+            System.err.println("Active rendering is unavailable, using repaint: " + e);
+        }
+    }
 
-        g2d = (Graphics2D) image.getGraphics();
-        Util.setGraphicsFlags(g2d); //Make the game look better on different monitors
+    //Draws a frame and shows it with the buffer strategy. Called by the game thread when rendering actively
+    private void render(){
+        long paintStart = System.nanoTime(); //Used to measure input latency
+        BufferStrategy strategy = bufferStrategy;
+        //The contents of the back buffer and the window buffers can be lost at any time (for example when another program takes the screen), in which case the frame is drawn again
+        do {
+            do {
+                drawFrame();
+
+                Graphics g = strategy.getDrawGraphics();
+                if (horizontalPadding > 0 || verticalPadding > 0) { //Paint the padding black, as the buffers start with garbage in them
+                    g.setColor(Color.BLACK);
+                    g.fillRect(0, 0, gameWidth, gameHeight);
+                }
+                //We draw the game (1920 width and 1080 height) on the screen with horizontal and vertical padding
+                g.drawImage(backBuffer.getImage(), horizontalPadding, verticalPadding, gameWidth-horizontalPadding, gameHeight-verticalPadding, 0, 0, INTERNAL_WIDTH, INTERNAL_HEIGHT, null);
+                g.dispose();
+            } while (strategy.contentsRestored() || backBuffer.contentsLost());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync(); //Make sure the frame is sent to the screen now, not whenever the OS decides
+        latencyStats.framePresented(paintStart, System.nanoTime());
+    }
 
-        draw(g2d);//update the positions of everything on the screen
+    //Draws a frame on the back buffer, again if the back buffer lost its contents while drawing
+    private void drawFrame(){
+        //we are using "double buffering" here - if we draw images directly onto the screen, it takes time and the human eye can actually notice flashes of lag as each pixel on the screen is drawn one at a time. Instead, we are going to draw images OFF the screen, then simply move the image on screen as needed.
+        do {
+            Graphics2D g = backBuffer.createGraphics(getGraphicsConfiguration());
+            Util.setGraphicsFlags(g); //Make the game look better on different monitors
+            draw(g); //update the positions of everything on the screen
+            g.dispose();
+        } while (backBuffer.contentsLost());
+    }
+
+    //paint is a method in java.awt library that we are overriding. It is a special method - it is called automatically in the background in order to update what appears in the window. You NEVER call paint() yourself
+    //Only used when active rendering is unavailable
+    public void paint(Graphics g){
+        if (bufferStrategy != null) { //The game thread draws the frames
+            return;
+        }
+        long paintStart = System.nanoTime(); //Used to measure input latency
+        drawFrame();
 
         //Using information calculated previously, we draw the game (1920 width and 1080 height) on the screen with horizontal and vertical padding
-        g.drawImage(image, horizontalPadding, verticalPadding, gameWidth-horizontalPadding, gameHeight-verticalPadding, 0, 0, 1920, 1080, this);
+        g.drawImage(backBuffer.getImage(), horizontalPadding, verticalPadding, gameWidth-horizontalPadding, gameHeight-verticalPadding, 0, 0, INTERNAL_WIDTH, INTERNAL_HEIGHT, this);
+        latencyStats.framePresented(paintStart, System.nanoTime());
     }
 
     //Draw the current Gui object on the screen
     public void draw(Graphics2D g){
-        this.gui.draw(g);
+        if (showLatency) {
+            //Guis can leave the graphics rotated or transparent, so the overlay is drawn with the settings from before
+            AffineTransform transform = g.getTransform();
+            Composite composite = g.getComposite();
+            this.gui.draw(g);
+            g.setTransform(transform);
+            g.setComposite(composite);
+            drawLatencyOverlay(g);
+        } else {
+            this.gui.draw(g);
+        }
+    }
+
+    //Draw the p50/p99/max input latency of every action in the top left corner
+    private void drawLatencyOverlay(Graphics2D g){
+        g.setFont(latencyFont);
+        FontMetrics fm = g.getFontMetrics();
+        int lineHeight = fm.getHeight();
+        int lines = 1 + 2 * LatencyStats.ACTION_NAMES.length;
+
+        //Dark background so the text can be read over the game
+        g.setColor(new Color(0, 0, 0, 180));
+        g.fillRect(10, 10, fm.stringWidth(LatencyStats.formatHeader()) + 20, (lines + 2) * lineHeight + 20);
+
+        g.setColor(Color.WHITE);
+        int y = 20 + fm.getAscent();
+        g.drawString(LatencyStats.formatHeader(), 20, y);
+        for (int i = 0; i < LatencyStats.ACTION_NAMES.length; i++) {
+            y += lineHeight;
+            g.drawString(LatencyStats.formatLine(LatencyStats.ACTION_NAMES[i] + " to tick", latencyStats.getToTick(i)), 20, y);
+            y += lineHeight;
+            g.drawString(LatencyStats.formatLine(LatencyStats.ACTION_NAMES[i] + " to screen", latencyStats.getToScreen(i)), 20, y);
+        }
+
+        //How late the game loop wakes up, and how much of the time it is waiting
+        y += lineHeight;
+        g.drawString(LatencyStats.formatLine(String.format("LOOP JITTER %.0f%% IDLE", scheduler.getIdlePercent()), scheduler.getJitter()), 20, y);
+        y += lineHeight;
+        g.drawString("SKIPPED UPDATES " + skippedUpdates, 20, y);
     }
 
     //Method to display a new Gui object on the screen
@@ -203,6 +389,16 @@ public class GamePanel extends JPanel implements Runnable {
         return maxRenderFPS;
     }
 
+    //Turn the recording of replays of solo games on or off (off by default, see Main)
+    public void setRecordingReplays(boolean recordingReplays){
+        this.recordingReplays = recordingReplays;
+    }
+
+    //Are replays of solo games recorded?
+    public boolean isRecordingReplays(){
+        return recordingReplays;
+    }
+
     //Getter for the music player
     public MusicPlayer getMusicPlayer(){
     	return musicPlayer;
@@ -215,6 +411,9 @@ public class GamePanel extends JPanel implements Runnable {
 
     //Stop the game
     public void exitGame(){
+        if (latencyShown || Boolean.getBoolean(LATENCY_PROPERTY)) {
+            latencyStats.print(System.out); //Print the input latency, for tuning the frame rate settings
+        }
         System.exit(0);
     }
 }
@@ -4,14 +4,81 @@
  *
  * Main class starts the game.
  * It first disables UI scaling, then runs the constructor in the GameFrame class.
+ *
+ * A replay can be opened with: --replay FILE [--speed N] [--headless]
+ * With --headless, the replay is simulated as fast as possible without a window and its result is printed.
+ * A local two player versus match can be started with: --versus
+ * Solo games are only recorded as replays with: --record (see ReplayRecorder.getReplayFolder for where they are saved)
  */
 package tetris;
 
+import tetris.gui.GuiReplay;
+import tetris.gui.GuiVersus;
+import tetris.replay.Replay;
+import tetris.replay.ReplayPlayer;
+
+import java.io.File;
+import java.io.IOException;
+
 public class Main {
-    public static void main(String[] args){
+    public static void main(String[] args) throws IOException {
+        //Options for opening a replay
+        String replayFile = null;
+        int speed = 1;
+        boolean headless = false;
+        boolean versus = false;
+        boolean record = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--replay":
+                    replayFile = args[++i];
+                    break;
+                case "--speed":
+                    speed = Integer.parseInt(args[++i]);
+                    break;
+                case "--headless":
+                    headless = true;
+                    break;
+                case "--versus":
+                    versus = true;
+                    break;
+                case "--record":
+                    record = true;
+                    break;
+            }
+        }
+
+        Replay replay = replayFile == null ? null : Replay.load(new File(replayFile));
+        if (replay != null && headless) {
+            playHeadless(replay);
+            return;
+        }
+
         //disable UI scaling, fix from https://stackoverflow.com/questions/47613006/how-to-disable-scaling-the-ui-on-windows-for-java-9-applications
         System.setProperty("sun.java2d.uiScale.enabled", "false");
 
         new GameFrame();
+        GamePanel.getGamePanel().setRecordingReplays(record);
+
+        if (replay != null) {
+            GamePanel.getGamePanel().displayGui(new GuiReplay(replay, speed));
+        } else if (versus) {
+            GamePanel.getGamePanel().displayGui(new GuiVersus());
+        }
+    }
+
+    // Simulates a whole replay as fast as possible and prints how the game ended
+    private static void playHeadless(Replay replay) {
+        long start = System.nanoTime();
+        ReplayPlayer player = new ReplayPlayer(replay);
+        player.playToEnd();
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%s replay, seed %d, %d ticks simulated in %.1f ms%n", replay.gameMode.getName(), replay.seed,
+                replay.getLength(), elapsed / 1e6);
+        System.out.printf("lines %d, pieces %d, died %b, objective completed %b, final score %d%s%n",
+                player.getEngine().linesCleared, player.getEngine().getPiecesPlaced(), player.getEngine().isDied(),
+                player.getEngine().isObjectiveCompleted(), player.getEngine().getFinalScore(),
+                replay.complete ? "" : " (some inputs were not recorded)");
     }
 }
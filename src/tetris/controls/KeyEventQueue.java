@@ -0,0 +1,127 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A queue of timestamped key presses and releases, passed from the AWT event thread to the game thread.
+ *
+ * The queue is a ring buffer for exactly one producer thread (the one calling offer) and one consumer thread (the one
+ * calling everything else). Neither thread ever waits for the other: the producer only writes the tail and the
+ * consumer only writes the head, and each publishes its index with lazySet after writing or reading the slots, so the
+ * other thread always sees whole events. Nothing is allocated after the queue is created.
+ *
+ * If the consumer stops reading, the queue fills up and new events are dropped instead of blocking the AWT thread.
+ * The consumer can notice this with getDropped and rebuild its state from the held keys (see KeyboardInput).
+ */
+package tetris.controls;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class KeyEventQueue {
+    // The events, stored in parallel arrays. Slot i of the queue is at index i & mask
+    private final int[] keyCodes;
+    private final boolean[] pressed;
+    private final long[] times;
+    private final int mask;
+
+    // Index of the next event the consumer reads, written by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    // Index of the next event the producer writes, written by the producer only
+    private final AtomicLong tail = new AtomicLong();
+
+    // The head as last seen by the producer. It only needs to be read again when the queue looks full
+    private long producerHead;
+
+    // Number of events dropped because the queue was full
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param capacity The most events the queue holds, rounded up to a power of two
+     */
+    public KeyEventQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        keyCodes = new int[size];
+        pressed = new boolean[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an event. Only called by the producer thread.
+     *
+     * @param keyCode The key code of the key
+     * @param isPressed True if the key was pressed, false if it was released
+     * @param time The System.nanoTime() when the event was received
+     * @return False if the queue was full and the event was dropped
+     */
+    public boolean offer(int keyCode, boolean isPressed, long time) {
+        long t = tail.get();
+        if (t - producerHead > mask) { //Looks full, so check how far the consumer has read since
+            producerHead = head.get();
+            if (t - producerHead > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        int index = (int) t & mask;
+        keyCodes[index] = keyCode;
+        pressed[index] = isPressed;
+        times[index] = time;
+        tail.lazySet(t + 1); //Publishes the slot to the consumer
+        return true;
+    }
+
+    /**
+     * @return The number of events waiting. Only called by the consumer thread
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * @param i The position of the event from the head of the queue, less than size()
+     * @return The key code of the event
+     */
+    public int getKeyCode(int i) {
+        return keyCodes[(int) (head.get() + i) & mask];
+    }
+
+    /**
+     * @param i The position of the event from the head of the queue, less than size()
+     * @return True if the key was pressed, false if it was released
+     */
+    public boolean isPressed(int i) {
+        return pressed[(int) (head.get() + i) & mask];
+    }
+
+    /**
+     * @param i The position of the event from the head of the queue, less than size()
+     * @return The System.nanoTime() when the event was received
+     */
+    public long getTime(int i) {
+        return times[(int) (head.get() + i) & mask];
+    }
+
+    /**
+     * Removes events from the head of the queue. Only called by the consumer thread.
+     *
+     * @param count The number of events to remove, at most size()
+     */
+    public void remove(int count) {
+        head.lazySet(head.get() + count); //Gives the slots back to the producer
+    }
+
+    /**
+     * Removes every waiting event. Only called by the consumer thread.
+     */
+    public void clear() {
+        head.lazySet(tail.get());
+    }
+
+    /**
+     * @return The number of events dropped so far because the queue was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
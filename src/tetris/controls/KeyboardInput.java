@@ -6,35 +6,51 @@
  * The game uses this class to determine if a key is pressed or released.
  *
  * This class also bypasses quirks in the OS and how it handles key input (such as auto-repeat)
+ *
+ * Every press and release is also put in a KeyEventQueue with the time it arrived, so the game can see every edge in
+ * order, even a tap that is pressed and released between two physics updates.
  */
 package tetris.controls;
 
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class KeyboardInput implements KeyListener {
-    //Boolean array to store the state of each key
-    private boolean[] keyPressed;
+    //Most events that can wait in the event queue
+    private static final int EVENT_QUEUE_CAPACITY = 1024;
+
+    //Array to store the state of each key, 1 if pressed
+    //Written by the AWT event thread and read by the game thread, so it is atomic to make the writes visible
+    private AtomicIntegerArray keyPressed;
+
+    //Every press and release, read by the game thread
+    private KeyEventQueue events;
 
     //Constructor to initialize the keyPressed array
     //Called in the GamePanel constructor
     public KeyboardInput(){
-        keyPressed = new boolean[KeyEvent.KEY_LAST+2];
+        keyPressed = new AtomicIntegerArray(KeyEvent.KEY_LAST+2);
+        events = new KeyEventQueue(EVENT_QUEUE_CAPACITY);
     }
 
-    //If a key is pressed, set the state of the key pressed in the keyPressed array to false
+    //If a key is pressed, set the state of the key pressed in the keyPressed array to true
     @Override
     public void keyPressed(KeyEvent e) {
-        if(e.getKeyCode() < keyPressed.length) {// If the key is within the bounds of the array. We don't need to process all keys.
-            keyPressed[e.getKeyCode()] = true;
+        if(e.getKeyCode() < keyPressed.length()) {// If the key is within the bounds of the array. We don't need to process all keys.
+            // Only the first press is queued; auto-repeat sends more presses while the key is held
+            if (keyPressed.getAndSet(e.getKeyCode(), 1) == 0) {
+                events.offer(e.getKeyCode(), true, System.nanoTime());
+            }
         }
     }
 
     //If a key is released, set the state of the key pressed in the keyPressed array to false
     @Override
     public void keyReleased(KeyEvent e) {
-        if(e.getKeyCode() < keyPressed.length) { // If the key is within the bounds of the array. We don't need to process all keys.
-            keyPressed[e.getKeyCode()] = false;
+        if(e.getKeyCode() < keyPressed.length()) { // If the key is within the bounds of the array. We don't need to process all keys.
+            keyPressed.set(e.getKeyCode(), 0);
+            events.offer(e.getKeyCode(), false, System.nanoTime());
         }
     }
 
@@ -45,7 +61,16 @@ public class KeyboardInput implements KeyListener {
      * @return True if the key is pressed, false if it is not
      */
     public boolean isKeyPressed(int keyCode){
-        return keyPressed[keyCode];
+        return keyPressed.get(keyCode) != 0;
+    }
+
+    /**
+     * Get the queue of key events. Only one thread may read it (the game thread, see GuiTetris)
+     *
+     * @return The queue of every press and release
+     */
+    public KeyEventQueue getEvents(){
+        return events;
     }
 
     //left empty because we don't need it; must be here because it is required to be overridden by the KeyListener interface
@@ -0,0 +1,563 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ * Date: June 18, 2022
+ *
+ * Stores the locked squares of the tetris playfield as a bitboard.
+ *
+ * Each row is a single int mask where a set bit means the square is filled. The playfield columns sit in the middle
+ * of the mask and every bit outside of them is permanently set, acting as a wall. Because of this, checking if a piece
+ * collides with anything (including the walls) is one AND per row of the piece, and a full row is simply a row with
+ * every bit set.
+ *
+ * The colour of every square is kept in a separate compact plane that is only used for rendering.
+ *
+ * The board also keeps a Zobrist hash of its filled squares, updated whenever rows change, so identical boards can be
+ * found in O(1).
+ */
+
+package tetris.game;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class Board {
+    //Number of rows and columns of the board
+    //The rendered boxes are represented in the rows 10-29 (vertically) and columns 0-9 (horizontally)
+    public final static int ROWS = 30;
+    public final static int COLUMNS = 10;
+
+    //Number of wall bits below the playfield columns in a row mask (the bits above them are all walls)
+    //This is enough for any piece that is partially outside the board to hit a wall
+    private final static int WALL = 3;
+
+    //Mask of the playfield columns inside a row mask
+    private final static int PLAYFIELD = ((1 << COLUMNS) - 1) << WALL;
+
+    //A row where only the walls are set
+    private final static int EMPTY_ROW = ~PLAYFIELD;
+
+    //A row where every square is filled
+    private final static int FULL_ROW = -1;
+
+    // Row masks of the board, index 0 is the top row
+    private final int[] rows;
+
+    // Colour plane, stores the piece id of every square (-1 for empty)
+    private final byte[] colors;
+
+    // Skyline of the board, stores the highest filled row of every column (ROWS if the column is empty)
+    private final int[] heights;
+
+    // Incremented every time the board changes, so results computed from the board can be cached
+    private int version;
+
+    // Range of rows that pieces were placed into since the last line clear, only these rows can be full
+    private int touchedTop, touchedBottom;
+
+    // Zobrist hash of the filled squares
+    private long hash;
+
+    // Rows removed by the last line clear, from top to bottom
+    private final int[] clearedRows;
+    private int clearedCount;
+
+    public Board() {
+        rows = new int[ROWS];
+        colors = new byte[ROWS * COLUMNS];
+        heights = new int[COLUMNS];
+        clearedRows = new int[ROWS];
+        clear();
+    }
+
+    /**
+     * Empties the whole board.
+     */
+    public void clear() {
+        Arrays.fill(rows, EMPTY_ROW);
+        Arrays.fill(colors, (byte) PieceType.NULL.getId());
+        Arrays.fill(heights, ROWS);
+        hash = 0; //An empty board has no filled squares
+        touchedTop = ROWS;
+        touchedBottom = -1;
+        clearedCount = 0;
+        version++;
+    }
+
+    /**
+     * Makes this board an exact copy of another board, without creating any objects.
+     *
+     * @param other The board to copy
+     */
+    public void copyFrom(Board other) {
+        System.arraycopy(other.rows, 0, rows, 0, ROWS);
+        System.arraycopy(other.colors, 0, colors, 0, ROWS * COLUMNS);
+        System.arraycopy(other.heights, 0, heights, 0, COLUMNS);
+        hash = other.hash;
+        touchedTop = other.touchedTop;
+        touchedBottom = other.touchedBottom;
+        clearedCount = other.clearedCount;
+        System.arraycopy(other.clearedRows, 0, clearedRows, 0, clearedCount);
+        version++;
+    }
+
+    /**
+     * Writes the board compactly, used to save the state of a game.
+     * Only the rows from the top of the stack down are written, as a mask of the filled squares followed by the
+     * colours of the row packed two squares per byte.
+     *
+     * @param out The stream to write to
+     */
+    public void writeState(DataOutput out) throws IOException {
+        int stackTop = ROWS;
+        for (int column = 0; column < COLUMNS; column++) {
+            stackTop = Math.min(stackTop, heights[column]);
+        }
+        out.writeByte(stackTop);
+        for (int row = stackTop; row < ROWS; row++) {
+            writeRow(out, row);
+        }
+        out.writeByte(touchedTop);
+        out.writeByte(touchedBottom);
+        out.writeByte(clearedCount);
+        for (int i = 0; i < clearedCount; i++) {
+            out.writeByte(clearedRows[i]);
+        }
+    }
+
+    /**
+     * Reads a board written by writeState, replacing this board.
+     *
+     * @param in The stream to read from
+     */
+    public void readState(DataInput in) throws IOException {
+        int stackTop = in.readUnsignedByte();
+        Arrays.fill(rows, 0, stackTop, EMPTY_ROW);
+        Arrays.fill(colors, 0, stackTop * COLUMNS, (byte) PieceType.NULL.getId());
+        for (int row = stackTop; row < ROWS; row++) {
+            readRowData(in, row);
+        }
+        touchedTop = in.readByte();
+        touchedBottom = in.readByte();
+        clearedCount = in.readUnsignedByte();
+        for (int i = 0; i < clearedCount; i++) {
+            clearedRows[i] = in.readUnsignedByte();
+        }
+
+        //Rebuild the hash and the skyline from the rows
+        hash = 0;
+        for (int row = stackTop; row < ROWS; row++) {
+            hash ^= Zobrist.row(row, squares(row));
+        }
+        rebuildHeights(stackTop);
+        version++;
+    }
+
+    /**
+     * Writes one row: a mask of its filled squares followed by its colours packed two squares per byte.
+     *
+     * @param out The stream to write to
+     * @param row The row to write
+     */
+    public void writeRow(DataOutput out, int row) throws IOException {
+        out.writeShort(squares(row));
+        for (int column = 0; column < COLUMNS; column += 2) {
+            //Piece ids go from -1 (empty) to 11, so every id fits in 4 bits after adding 1
+            int first = colors[row * COLUMNS + column] + 1;
+            int second = colors[row * COLUMNS + column + 1] + 1;
+            out.writeByte(first << 4 | second);
+        }
+    }
+
+    /**
+     * Reads a row written by writeRow, replacing that row of the board.
+     *
+     * @param in The stream to read from
+     * @param row The row to replace
+     */
+    public void readRow(DataInput in, int row) throws IOException {
+        hash ^= Zobrist.row(row, squares(row));
+        readRowData(in, row);
+        hash ^= Zobrist.row(row, squares(row));
+        rebuildHeights(0);
+        version++;
+    }
+
+    // Reads the squares and colours of a row, without updating anything else
+    private void readRowData(DataInput in, int row) throws IOException {
+        rows[row] = EMPTY_ROW | in.readUnsignedShort() << WALL;
+        for (int column = 0; column < COLUMNS; column += 2) {
+            int packed = in.readUnsignedByte();
+            colors[row * COLUMNS + column] = (byte) ((packed >>> 4) - 1);
+            colors[row * COLUMNS + column + 1] = (byte) ((packed & 15) - 1);
+        }
+    }
+
+    // Finds the skyline by searching every column downwards, starting from a row that nothing is above
+    private void rebuildHeights(int fromRow) {
+        for (int column = 0; column < COLUMNS; column++) {
+            int height = fromRow;
+            while (height < ROWS && !isFilled(height, column)) {
+                height++;
+            }
+            heights[column] = height;
+        }
+    }
+
+    /**
+     * Checks if a row has the same squares and colours as the same row of another board.
+     *
+     * @param other The board to compare with
+     * @param row The row to compare
+     * @return True if the rows are the same
+     */
+    public boolean rowEquals(Board other, int row) {
+        if (rows[row] != other.rows[row]) {
+            return false;
+        }
+        for (int i = row * COLUMNS; i < row * COLUMNS + COLUMNS; i++) {
+            if (colors[i] != other.colors[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a piece shape can be placed at the given position without overlapping any filled square or wall.
+     *
+     * @param shape Row masks of the piece shape, bit j is the j-th column of the piece grid
+     * @param left The board column of the leftmost column of the piece grid
+     * @param top The board row of the top row of the piece grid
+     * @return True if the shape fits, false otherwise
+     */
+    public boolean fits(int[] shape, int left, int top) {
+        int shift = left + WALL;
+        if (shift < 0 || shift > Integer.SIZE - 4) { //Every square of the piece would be outside the walls
+            return false;
+        }
+        for (int i = 0; i < shape.length; i++) {
+            if (shape[i] == 0) { //Empty piece row, nothing to collide
+                continue;
+            }
+            int row = top + i;
+            if (row < 0 || row >= ROWS || (rows[row] & (shape[i] << shift)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a piece of the given type, rotation and center position fits on the board.
+     *
+     * @param type The type of the piece
+     * @param rotation The rotation index of the piece
+     * @param centerX The column of the center of the piece
+     * @param centerY The row of the center of the piece
+     * @return True if the piece fits, false otherwise
+     */
+    public boolean canPlace(PieceType type, int rotation, int centerX, int centerY) {
+        //The center of the piece is shifted to the right and down by 1 from the top left of its grid
+        return fits(PieceType.getShape(type, rotation), centerX - 1, centerY - 1);
+    }
+
+    /**
+     * Finds the lowest row the center of a piece can drop to from its current position.
+     *
+     * If the piece is above the skyline in every column it covers, the landing row is found from the skyline in
+     * O(piece width). Otherwise the piece is tucked under an overhang and is dropped one row at a time.
+     *
+     * @param type The type of the piece
+     * @param rotation The rotation index of the piece
+     * @param centerX The column of the center of the piece
+     * @param centerY The row of the center of the piece, assumed to be legal
+     * @return The lowest legal row of the center of the piece
+     */
+    public int findDropHeight(PieceType type, int rotation, int centerX, int centerY) {
+        int[] bottoms = PieceType.getColumnBottoms(type, rotation);
+        int left = centerX - 1;
+
+        //Lowest top row of the piece grid that keeps every column above the skyline
+        int landingTop = Integer.MAX_VALUE;
+        for (int j = 0; j < bottoms.length; j++) {
+            if (bottoms[j] >= 0) {
+                landingTop = Math.min(landingTop, heights[left + j] - 1 - bottoms[j]);
+            }
+        }
+        if (centerY - 1 <= landingTop) {
+            return landingTop + 1;
+        }
+
+        //Under an overhang, so drop one row at a time
+        while (canPlace(type, rotation, centerX, centerY + 1)) {
+            centerY++;
+        }
+        return centerY;
+    }
+
+    /**
+     * Locks a piece shape into the board. The shape is assumed to fit.
+     *
+     * @param shape Row masks of the piece shape
+     * @param type The type of the piece, used for the colour plane
+     * @param left The board column of the leftmost column of the piece grid
+     * @param top The board row of the top row of the piece grid
+     */
+    public void place(int[] shape, PieceType type, int left, int top) {
+        for (int i = 0; i < shape.length; i++) {
+            if (shape[i] == 0) {
+                continue;
+            }
+            int row = top + i;
+            hash ^= Zobrist.row(row, squares(row));
+            rows[row] |= shape[i] << (left + WALL);
+            hash ^= Zobrist.row(row, squares(row));
+            touchedTop = Math.min(touchedTop, row);
+            touchedBottom = Math.max(touchedBottom, row);
+
+            //Colour every square of this piece row and raise the skyline
+            for (int j = 0; j < 4; j++) {
+                if ((shape[i] & (1 << j)) != 0) {
+                    colors[row * COLUMNS + left + j] = (byte) type.getId();
+                    heights[left + j] = Math.min(heights[left + j], row);
+                }
+            }
+        }
+        version++;
+    }
+
+    /**
+     * Removes every full row and moves the rows above them down.
+     *
+     * A row can only become full when a piece is placed into it, so only the rows touched since the last call are
+     * checked. The rows are compacted in place, and nothing is moved if no row is full.
+     * The cleared rows can be read afterwards with getClearedRow.
+     *
+     * @return The number of rows cleared
+     */
+    public int clearLines() {
+        //Find the full rows among the touched rows, from top to bottom
+        clearedCount = 0;
+        for (int row = touchedTop; row <= touchedBottom; row++) {
+            if (rows[row] == FULL_ROW) {
+                clearedRows[clearedCount++] = row;
+            }
+        }
+        touchedTop = ROWS;
+        touchedBottom = -1;
+
+        if (clearedCount == 0) {
+            return 0;
+        }
+
+        //Every row above the top of the stack is already empty, so nothing above it has to move
+        int stackTop = ROWS;
+        for (int column = 0; column < COLUMNS; column++) {
+            stackTop = Math.min(stackTop, heights[column]);
+        }
+
+        //Only the rows from the top of the stack to the lowest cleared row change, so only their part of the hash is
+        //updated: it is removed now and added back once the rows have moved
+        int lowestCleared = clearedRows[clearedCount - 1];
+        for (int row = stackTop; row <= lowestCleared; row++) {
+            hash ^= Zobrist.row(row, squares(row));
+        }
+
+        //The rows below the lowest cleared row stay where they are.
+        //Iterating upwards from there, every row that is not full is moved down to the next free row
+        int write = lowestCleared;
+        for (int read = write - 1; read >= stackTop; read--) {
+            if (rows[read] == FULL_ROW) {
+                continue;
+            }
+            rows[write] = rows[read];
+            System.arraycopy(colors, read * COLUMNS, colors, write * COLUMNS, COLUMNS);
+            write--;
+        }
+
+        //Every row between the top of the stack and the last moved row is now empty
+        for (int row = write; row >= stackTop; row--) {
+            rows[row] = EMPTY_ROW;
+            Arrays.fill(colors, row * COLUMNS, row * COLUMNS + COLUMNS, (byte) PieceType.NULL.getId());
+        }
+        for (int row = stackTop; row <= lowestCleared; row++) {
+            hash ^= Zobrist.row(row, squares(row));
+        }
+        updateHeights(clearedRows[0], clearedCount);
+        version++;
+        return clearedCount;
+    }
+
+    /**
+     * Pushes garbage rows up from the bottom of the board, used in versus games.
+     * Every garbage row is filled except for the hole column.
+     *
+     * The rows are moved up inside the existing arrays, so nothing is created. Squares pushed above the top row are
+     * lost, which means the player has topped out.
+     *
+     * @param lines The number of garbage rows to insert
+     * @param hole The column left empty in every garbage row
+     * @return False if any filled square was pushed off the top of the board, true otherwise
+     */
+    public boolean insertGarbage(int lines, int hole) {
+        if (lines <= 0) {
+            return true;
+        }
+        lines = Math.min(lines, ROWS);
+
+        int stackTop = ROWS;
+        for (int column = 0; column < COLUMNS; column++) {
+            stackTop = Math.min(stackTop, heights[column]);
+        }
+        boolean toppedOut = stackTop < lines;
+
+        //Every row from the top of the stack down moves, so its part of the hash is removed and added back afterwards
+        for (int row = stackTop; row < ROWS; row++) {
+            hash ^= Zobrist.row(row, squares(row));
+        }
+
+        //Move the stack up. Rows that would go above the top row are dropped
+        int first = Math.max(stackTop, lines);
+        System.arraycopy(rows, first, rows, first - lines, ROWS - first);
+        System.arraycopy(colors, first * COLUMNS, colors, (first - lines) * COLUMNS, (ROWS - first) * COLUMNS);
+
+        //Fill the bottom rows with garbage
+        int garbageRow = PLAYFIELD & ~(1 << (hole + WALL));
+        for (int row = ROWS - lines; row < ROWS; row++) {
+            rows[row] = EMPTY_ROW | garbageRow;
+            Arrays.fill(colors, row * COLUMNS, row * COLUMNS + COLUMNS, (byte) PieceType.GARBAGE.getId());
+            colors[row * COLUMNS + hole] = (byte) PieceType.NULL.getId();
+        }
+
+        int newTop = Math.max(stackTop - lines, 0);
+        for (int row = newTop; row < ROWS; row++) {
+            hash ^= Zobrist.row(row, squares(row));
+        }
+
+        //Raise the skyline. The hole column stays empty if nothing was above the garbage
+        for (int column = 0; column < COLUMNS; column++) {
+            int height = heights[column];
+            if (toppedOut) { //Squares were lost, so search for the new top square
+                height = 0;
+                while (height < ROWS && !isFilled(height, column)) {
+                    height++;
+                }
+            } else if (height < ROWS) {
+                height -= lines;
+            } else if (column != hole) {
+                height = ROWS - lines;
+            }
+            heights[column] = height;
+        }
+
+        //The touched rows have moved up with the rest of the stack
+        if (touchedBottom >= 0) {
+            touchedTop = Math.max(touchedTop - lines, 0);
+            touchedBottom -= lines;
+            if (touchedBottom < 0) {
+                touchedTop = ROWS;
+                touchedBottom = -1;
+            }
+        }
+        version++;
+        return !toppedOut;
+    }
+
+    /**
+     * @return The number of rows removed by the last call to clearLines
+     */
+    public int getClearedCount() {
+        return clearedCount;
+    }
+
+    /**
+     * Returns a row removed by the last call to clearLines, as it was numbered before the rows above it moved down.
+     *
+     * @param index The index of the cleared row, from 0 (highest) to getClearedCount() - 1 (lowest)
+     * @return The row that was cleared
+     */
+    public int getClearedRow(int index) {
+        return clearedRows[index];
+    }
+
+    /**
+     * Updates the skyline after rows were cleared.
+     *
+     * Full rows cover every column, so every column's top square is at or above the highest cleared row. A column
+     * whose top square was not cleared simply moves down by the number of cleared rows. Only columns whose top square
+     * was cleared need to search for their new top.
+     *
+     * @param highestCleared The highest row that was cleared
+     * @param cleared The number of rows that were cleared
+     */
+    private void updateHeights(int highestCleared, int cleared) {
+        for (int column = 0; column < COLUMNS; column++) {
+            int height = heights[column];
+            if (height < highestCleared) {
+                heights[column] = height + cleared;
+                continue;
+            }
+            //Search downwards for the new top square, squares can only have moved down
+            while (height < ROWS && !isFilled(height, column)) {
+                height++;
+            }
+            heights[column] = height;
+        }
+    }
+
+    // The filled squares of a row, bit j is column j
+    private int squares(int row) {
+        return (rows[row] & PLAYFIELD) >>> WALL;
+    }
+
+    /**
+     * @return The Zobrist hash of the filled squares of the board
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return True if the square at the given row and column is filled
+     */
+    public boolean isFilled(int row, int column) {
+        return (rows[row] & (1 << (column + WALL))) != 0;
+    }
+
+    /**
+     * @return The highest filled row of the column, or ROWS if the column is empty
+     */
+    public int getHeight(int column) {
+        return heights[column];
+    }
+
+    /**
+     * @return A number that changes every time the board changes
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The number of filled squares in the row
+     */
+    public int getRowFill(int row) {
+        return Integer.bitCount(rows[row] & PLAYFIELD);
+    }
+
+    /**
+     * @return True if every square of the row is filled
+     */
+    public boolean isRowFull(int row) {
+        return rows[row] == FULL_ROW;
+    }
+
+    /**
+     * @return The piece type of the square at the given row and column, used for rendering
+     */
+    public PieceType getType(int row, int column) {
+        return PieceType.fromId(colors[row * COLUMNS + column]);
+    }
+}
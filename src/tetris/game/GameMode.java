@@ -3,16 +3,13 @@
  * Date: June 18, 2022
  *
  * This class stores all the game modes.
- * Also used to handle game specific assets.
+ * The assets and colors of every game mode are chosen by the gui (see GuiGameMode and GuiTetris), so the game logic
+ * doesn't depend on java.awt.
  */
 package tetris.game;
 
-import tetris.util.Assets;
-
-import java.awt.*;
-
 public enum GameMode {
-    FORTY_LINES, BLITZ; //The game modes
+    FORTY_LINES, BLITZ, VERSUS; //The game modes
 
     //Returns name of the game mode
     public String getName(){
@@ -21,6 +18,8 @@ public enum GameMode {
                 return "40 LINES";
             case BLITZ:
                 return "BLITZ";
+            case VERSUS:
+                return "VERSUS";
             default:
                 return "";
         }
@@ -33,44 +32,10 @@ public enum GameMode {
                 return "Clear 40 lines in the shortest time possible!";
             case BLITZ:
                 return "Clear as many lines as possible in 120 seconds!";
+            case VERSUS:
+                return "Clear lines to send garbage and be the last one standing!";
             default:
                 return "";
         }
     }
-
-    //Returns the banner that is displayed when the game starts in the given game mode
-    public Image getBanner(){
-        switch (this){
-            case FORTY_LINES:
-                return Assets.Game.FORTY_BANNER.get();
-            case BLITZ:
-                return Assets.Game.BLITZ_BANNER.get();
-            default:
-                return null;
-        }
-    }
-
-    //Returns the text color
-    public Color getTextColor(){
-        switch (this){
-            case FORTY_LINES:
-                return new Color(233, 181, 142);
-            case BLITZ:
-                return new Color(219, 161, 161);
-            default:
-                return null;
-        }
-    }
-
-    //Returns the background color
-    public Color getBackgroundColor(){
-        switch (this){
-            case FORTY_LINES:
-                return new Color(82, 61, 45);
-            case BLITZ:
-                return new Color(62, 36, 36);
-            default:
-                return null;
-        }
-    }
 }
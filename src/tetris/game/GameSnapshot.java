@@ -0,0 +1,161 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A copy of the full state of a TetrisEngine, taken with TetrisEngine.snapshot and put back with
+ * TetrisEngine.restore. Used for bot lookahead, rewinding and rollback.
+ *
+ * Everything is stored in primitive fields and arrays that are created once with the snapshot, so taking and
+ * restoring a snapshot does not create any objects. One snapshot can be reused for any number of games of the same
+ * game mode.
+ *
+ * A snapshot can also be written to a stream in a compact form, which is used for replay keyframes.
+ */
+package tetris.game;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class GameSnapshot {
+    //The locked squares
+    final Board board = new Board();
+
+    //Randomizer: generator state, upcoming piece ids and the state of the bag
+    long generatorState;
+    byte[] queue = new byte[32];
+    int queueSize;
+    final byte[] bag = new byte[8];
+    int bagSize;
+
+    //Current piece
+    int currentType;
+    int currentRotation;
+    int currentX;
+    int currentY;
+
+    //Held piece id (-1 if nothing is held)
+    int holdType;
+    boolean canSwitchHold;
+
+    //Progress
+    int linesCleared;
+    int lineGoal;
+    int level;
+    int piecesPlaced;
+
+    //Timers
+    long dropLength, dropStart;
+    boolean dropDisabled;
+    long lockLength, lockStart;
+    boolean lockDisabled;
+
+    //Times measured with the game clock
+    long timeStarted;
+    long lastSoftDrop;
+    long currentUpdateFrame;
+
+    //End of the game
+    boolean died;
+    boolean objectiveCompleted;
+    long finalScore;
+
+    //Versus garbage: rows waiting to rise, rows sent but not collected yet and the generator of the hole columns
+    int incomingGarbage;
+    int outgoingGarbage;
+    long garbageState;
+
+    //Ticks of the game clock if it is a TickClock, -1 otherwise
+    long clockTicks;
+
+    // Makes sure the queue can hold the given number of pieces. Only creates an array if the queue has grown
+    void ensureQueueCapacity(int pieces) {
+        if (queue.length < pieces) {
+            queue = Arrays.copyOf(queue, Integer.highestOneBit(pieces) * 2);
+        }
+    }
+
+    /**
+     * Writes the snapshot compactly, without the clock ticks.
+     *
+     * @param out The stream to write to
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(generatorState);
+        out.writeShort(queueSize);
+        out.write(queue, 0, queueSize);
+        out.writeByte(bagSize);
+        out.write(bag, 0, bagSize);
+        board.writeState(out);
+
+        out.writeByte(currentType);
+        out.writeByte(currentRotation);
+        out.writeByte(currentX);
+        out.writeByte(currentY);
+        out.writeByte(holdType);
+        out.writeBoolean(canSwitchHold);
+
+        out.writeInt(linesCleared);
+        out.writeInt(lineGoal);
+        out.writeInt(level);
+        out.writeInt(piecesPlaced);
+        out.writeLong(dropLength);
+        out.writeLong(dropStart);
+        out.writeBoolean(dropDisabled);
+        out.writeLong(lockLength);
+        out.writeLong(lockStart);
+        out.writeBoolean(lockDisabled);
+        out.writeLong(timeStarted);
+        out.writeLong(lastSoftDrop);
+        out.writeLong(currentUpdateFrame);
+        out.writeBoolean(died);
+        out.writeBoolean(objectiveCompleted);
+        out.writeLong(finalScore);
+        out.writeShort(incomingGarbage);
+        out.writeShort(outgoingGarbage);
+        out.writeLong(garbageState);
+    }
+
+    /**
+     * Reads a snapshot written by write. The clock ticks are set to -1, so restoring it leaves the clock alone.
+     *
+     * @param in The stream to read from
+     */
+    public void read(DataInput in) throws IOException {
+        generatorState = in.readLong();
+        queueSize = in.readUnsignedShort();
+        ensureQueueCapacity(queueSize);
+        in.readFully(queue, 0, queueSize);
+        bagSize = in.readUnsignedByte();
+        in.readFully(bag, 0, bagSize);
+        board.readState(in);
+
+        currentType = in.readByte();
+        currentRotation = in.readByte();
+        currentX = in.readByte();
+        currentY = in.readByte();
+        holdType = in.readByte();
+        canSwitchHold = in.readBoolean();
+
+        linesCleared = in.readInt();
+        lineGoal = in.readInt();
+        level = in.readInt();
+        piecesPlaced = in.readInt();
+        dropLength = in.readLong();
+        dropStart = in.readLong();
+        dropDisabled = in.readBoolean();
+        lockLength = in.readLong();
+        lockStart = in.readLong();
+        lockDisabled = in.readBoolean();
+        timeStarted = in.readLong();
+        lastSoftDrop = in.readLong();
+        currentUpdateFrame = in.readLong();
+        died = in.readBoolean();
+        objectiveCompleted = in.readBoolean();
+        finalScore = in.readLong();
+        incomingGarbage = in.readUnsignedShort();
+        outgoingGarbage = in.readUnsignedShort();
+        garbageState = in.readLong();
+        clockTicks = -1;
+    }
+}
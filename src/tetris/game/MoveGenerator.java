@@ -0,0 +1,343 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Finds every final resting placement a piece can reach on a board, together with the inputs that reach it.
+ * This is the foundation for bots and finesse analysis.
+ *
+ * The search is a breadth first search over (column, row, rotation) states using the same rules as TetrisEngine:
+ * moving left and right, soft dropping one row and rotating with the SRS wall kicks. Because of this, tucks and spins
+ * are found as well, and every placement gets the path with the fewest moves that reaches it. A soft drop above the
+ * stack (see below) is one move but several inputs, so this is not always the path with the fewest inputs.
+ *
+ * To keep the search fast, a piece that is completely above the stack can soft drop straight down to the lowest row
+ * that is still above the stack. Above the stack only the walls can block the piece, so this finds the same placements
+ * as dropping one row at a time. Placements with exactly the same squares (for example the two flat rotations of the
+ * I piece) are only reported once.
+ *
+ * The generator reuses its arrays, so generating placements does not create any objects. Results are only valid until
+ * the next call to generate.
+ */
+package tetris.game;
+
+public class MoveGenerator {
+    //Inputs of a path
+    public static final byte LEFT = 0;
+    public static final byte RIGHT = 1;
+    public static final byte ROTATE_CW = 2;
+    public static final byte ROTATE_CCW = 3;
+    public static final byte SOFT_DROP = 4;
+    public static final byte HOLD = 5;
+
+    //A state is packed as rotation (2 bits), center row + Y_OFFSET (5 bits) and center column + X_OFFSET (4 bits)
+    private static final int X_OFFSET = 3;
+    private static final int Y_OFFSET = 2;
+    private static final int STATE_COUNT = PieceType.ROTATION_COUNT << 9;
+
+    //Most inputs a path can have, a path never goes through the same state twice
+    public static final int MAX_PATH_LENGTH = STATE_COUNT;
+
+    //Spawn position of every piece, the same as Piece
+    private static final int SPAWN_X = 4;
+    private static final int SPAWN_Y = 8;
+
+    //Rotations that have exactly the same squares as an earlier rotation of the same piece (up to a translation) share
+    //the earlier rotation here, so that identical placements are only reported once
+    private static final int[][] canonicalRotation;
+
+    static {
+        canonicalRotation = new int[PieceType.PIECE_COUNT][PieceType.ROTATION_COUNT];
+        for (PieceType type : PieceType.values()) {
+            if (type.getId() < 0 || type.getId() >= PieceType.PIECE_COUNT) {
+                continue;
+            }
+            for (int rot = 0; rot < PieceType.ROTATION_COUNT; rot++) {
+                canonicalRotation[type.getId()][rot] = rot;
+                for (int earlier = 0; earlier < rot; earlier++) {
+                    if (sameShape(type, earlier, rot)) {
+                        canonicalRotation[type.getId()][rot] = earlier;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    //The board being searched
+    private Board board;
+
+    //Per search (0 for the current piece, 1 for the hold piece): the visit stamp, the parent state and the input used to
+    //reach every state. A state is visited in a search if its stamp equals the stamp of the search
+    private final int[] visited = new int[2 * STATE_COUNT];
+    private final int[] parent = new int[2 * STATE_COUNT];
+    private final byte[] input = new byte[2 * STATE_COUNT];
+    private final int[] searchStamp = new int[2];
+    private int stamp;
+
+    //Stamps of the placements that were already reported, indexed by canonical rotation, top row and left column
+    private final int[] placed = new int[2 * PieceType.ROTATION_COUNT * Board.ROWS * Board.COLUMNS];
+
+    //Queue of states to visit
+    private final int[] queue = new int[STATE_COUNT];
+
+    //Lowest center row that is still completely above the stack, for every rotation of the piece being searched
+    private final int[] openRow = new int[PieceType.ROTATION_COUNT];
+
+    //The placements found by the last call to generate
+    private final int[] placementState = new int[2 * STATE_COUNT];
+    private final byte[] placementSearch = new byte[2 * STATE_COUNT];
+    private final boolean[] placementSpin = new boolean[2 * STATE_COUNT];
+    private final PieceType[] searchType = new PieceType[2];
+    private int placementCount;
+
+    /**
+     * Finds every placement of the current piece, and of the hold piece if holding is allowed.
+     *
+     * @param board The board to search
+     * @param current The type of the current piece
+     * @param hold The type of the piece that would be played after holding (the held piece, or the next piece if nothing
+     *             is held). Null if holding is not allowed
+     * @param firstHold True if nothing is held yet, so holding puts the current piece into hold and plays the next piece
+     * @return The number of placements found
+     */
+    public int generate(Board board, PieceType current, PieceType hold, boolean firstHold) {
+        this.board = board;
+        placementCount = 0;
+
+        search(0, current);
+        //Swapping with a held piece of the same type would give the same placements. Holding for the first time doesn't,
+        //as it also uses up the next piece
+        if (hold != null && (firstHold || hold != current)) {
+            search(1, hold);
+        }
+        return placementCount;
+    }
+
+    // Breadth first search of every state a piece can reach from its spawn position
+    private void search(int search, PieceType type) {
+        searchType[search] = type;
+        searchStamp[search] = ++stamp;
+        int base = search * STATE_COUNT;
+        int placedStamp = stamp;
+
+        if (!board.canPlace(type, 0, SPAWN_X, SPAWN_Y)) { //The piece can't spawn
+            return;
+        }
+
+        //Find the lowest row that is completely above the stack for every rotation
+        int stackTop = Board.ROWS;
+        for (int column = 0; column < Board.COLUMNS; column++) {
+            stackTop = Math.min(stackTop, board.getHeight(column));
+        }
+        for (int rot = 0; rot < PieceType.ROTATION_COUNT; rot++) {
+            //The lowest square of the piece must be above the stack
+            openRow[rot] = stackTop - PieceType.getBounds(type, rot)[3];
+        }
+
+        int head = 0, tail = 0;
+        int start = pack(SPAWN_X, SPAWN_Y, 0);
+        visited[base + start] = stamp;
+        parent[base + start] = -1;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int state = queue[head++];
+            int x = unpackX(state), y = unpackY(state), rot = unpackRotation(state);
+
+            //Moves and rotations are tried before soft dropping, so that when two paths are equally short, the path
+            //that moves the piece into place before dropping it is kept
+            //Rotate, using the first wall kick that is legal like TetrisEngine does
+            if (type != PieceType.O) {
+                tail = rotate(base, state, type, x, y, rot, true, tail);
+                tail = rotate(base, state, type, x, y, rot, false, tail);
+            }
+
+            //Move left and right
+            if (board.canPlace(type, rot, x - 1, y)) {
+                tail = visit(base, state, pack(x - 1, y, rot), LEFT, tail);
+            }
+            if (board.canPlace(type, rot, x + 1, y)) {
+                tail = visit(base, state, pack(x + 1, y, rot), RIGHT, tail);
+            }
+
+            //Soft drop. Above the stack, drop straight to the lowest row that is still above the stack
+            int dropY = y < openRow[rot] - 1 ? openRow[rot] : y + 1;
+            boolean onGround = !board.canPlace(type, rot, x, y + 1);
+            if (!onGround) {
+                tail = visit(base, state, pack(x, dropY, rot), SOFT_DROP, tail);
+            }
+
+            //A piece that can't drop any further is a placement
+            if (onGround) {
+                addPlacement(search, state, type, x, y, rot, placedStamp);
+            }
+        }
+    }
+
+    // Tries to rotate the piece in a state, visiting the rotated state if a wall kick is legal
+    private int rotate(int base, int state, PieceType type, int x, int y, int rot, boolean clockwise, int tail) {
+        int rotation = (rot + (clockwise ? 1 : 3)) % PieceType.ROTATION_COUNT;
+        int kickCount = PieceType.getKickCount(type, rot, clockwise);
+        for (int i = 0; i < kickCount; i++) {
+            int kickX = x + PieceType.getKickX(type, rot, clockwise, i);
+            int kickY = y + PieceType.getKickY(type, rot, clockwise, i);
+            if (board.canPlace(type, rotation, kickX, kickY)) {
+                return visit(base, state, pack(kickX, kickY, rotation), clockwise ? ROTATE_CW : ROTATE_CCW, tail);
+            }
+        }
+        return tail;
+    }
+
+    // Adds a state to the queue if it has not been visited yet
+    private int visit(int base, int from, int state, byte move, int tail) {
+        if (visited[base + state] == stamp) {
+            return tail;
+        }
+        visited[base + state] = stamp;
+        parent[base + state] = from;
+        input[base + state] = move;
+        queue[tail++] = state;
+        return tail;
+    }
+
+    // Reports a resting state as a placement unless a placement with the same squares was already reported
+    private void addPlacement(int search, int state, PieceType type, int x, int y, int rot, int placedStamp) {
+        int[] bounds = PieceType.getBounds(type, rot);
+        int left = x - 1 + bounds[0];
+        int top = y - 1 + bounds[2];
+        int key = ((search * PieceType.ROTATION_COUNT + canonicalRotation[type.getId()][rot]) * Board.ROWS + top) * Board.COLUMNS + left;
+        if (placed[key] == placedStamp) {
+            return;
+        }
+        placed[key] = placedStamp;
+
+        //A spin is a placement reached by a rotation where the piece can't move left, right or up
+        int base = search * STATE_COUNT;
+        byte last = input[base + state];
+        boolean spin = (last == ROTATE_CW || last == ROTATE_CCW)
+                && !board.canPlace(type, rot, x - 1, y) && !board.canPlace(type, rot, x + 1, y) && !board.canPlace(type, rot, x, y - 1);
+
+        placementState[placementCount] = state;
+        placementSearch[placementCount] = (byte) search;
+        placementSpin[placementCount] = spin;
+        placementCount++;
+    }
+
+    /**
+     * @return The number of placements found by the last call to generate
+     */
+    public int getCount() {
+        return placementCount;
+    }
+
+    //Return the type of the piece of a placement
+    public PieceType getType(int placement) {
+        return searchType[placementSearch[placement]];
+    }
+
+    //Return the center column of a placement
+    public int getX(int placement) {
+        return unpackX(placementState[placement]);
+    }
+
+    //Return the center row of a placement
+    public int getY(int placement) {
+        return unpackY(placementState[placement]);
+    }
+
+    //Return the rotation index of a placement
+    public int getRotation(int placement) {
+        return unpackRotation(placementState[placement]);
+    }
+
+    //Return true if the placement is played with the hold piece
+    public boolean usesHold(int placement) {
+        return placementSearch[placement] == 1;
+    }
+
+    //Return true if the placement was reached by a rotation into a spot the piece can't move out of
+    public boolean isSpin(int placement) {
+        return placementSpin[placement];
+    }
+
+    /**
+     * Writes the inputs of the path with the fewest moves that reaches a placement from the spawn position.
+     * After the inputs, the piece is hard dropped (it is already on the ground, so it doesn't move).
+     *
+     * @param placement The index of the placement
+     * @param path The array to write the inputs to, must be big enough for the path (MAX_PATH_LENGTH always is)
+     * @return The number of inputs written
+     */
+    public int getPath(int placement, byte[] path) {
+        int search = placementSearch[placement];
+        int base = search * STATE_COUNT;
+
+        //Count the inputs by walking back to the spawn position, soft drops above the stack count once per row
+        int length = search == 1 ? 1 : 0;
+        for (int state = placementState[placement]; parent[base + state] != -1; state = parent[base + state]) {
+            length += inputCount(base, state);
+        }
+
+        //Write the inputs backwards
+        int index = length;
+        for (int state = placementState[placement]; parent[base + state] != -1; state = parent[base + state]) {
+            int count = inputCount(base, state);
+            for (int i = 0; i < count; i++) {
+                path[--index] = input[base + state];
+            }
+        }
+        if (search == 1) {
+            path[0] = HOLD;
+        }
+        return length;
+    }
+
+    /**
+     * Returns the inputs that reach a placement from the spawn position, see getPath(int, byte[]).
+     *
+     * @param placement The index of the placement
+     * @return The inputs
+     */
+    public byte[] getPath(int placement) {
+        byte[] path = new byte[MAX_PATH_LENGTH];
+        int length = getPath(placement, path);
+        byte[] result = new byte[length];
+        System.arraycopy(path, 0, result, 0, length);
+        return result;
+    }
+
+    // Number of inputs of the step into a state (a soft drop above the stack covers several rows)
+    private int inputCount(int base, int state) {
+        if (input[base + state] != SOFT_DROP) {
+            return 1;
+        }
+        return unpackY(state) - unpackY(parent[base + state]);
+    }
+
+    // Checks if two rotations of a piece have the same squares, up to a translation
+    private static boolean sameShape(PieceType type, int a, int b) {
+        int[] cellsA = PieceType.getCells(type, a), cellsB = PieceType.getCells(type, b);
+        int[] boundsA = PieceType.getBounds(type, a), boundsB = PieceType.getBounds(type, b);
+        int[] shapeA = new int[4], shapeB = new int[4];
+        for (int i = 0; i < cellsA.length; i += 2) {
+            shapeA[cellsA[i + 1] - boundsA[2]] |= 1 << (cellsA[i] - boundsA[0]);
+            shapeB[cellsB[i + 1] - boundsB[2]] |= 1 << (cellsB[i] - boundsB[0]);
+        }
+        return java.util.Arrays.equals(shapeA, shapeB);
+    }
+
+    private static int pack(int x, int y, int rotation) {
+        return (rotation << 9) | ((y + Y_OFFSET) << 4) | (x + X_OFFSET);
+    }
+
+    private static int unpackX(int state) {
+        return (state & 15) - X_OFFSET;
+    }
+
+    private static int unpackY(int state) {
+        return ((state >> 4) & 31) - Y_OFFSET;
+    }
+
+    private static int unpackRotation(int state) {
+        return state >> 9;
+    }
+}
@@ -19,7 +19,15 @@ public class Piece {
     // Stores actual position of the piece (i.e. which squares are colored) in an array
     PieceType[][] currentPieceGrid;
 
+    // Row masks of the current piece grid, used for collision checks against the board
+    int[] shapeRows;
+
     public Piece(PieceType type){
+        reset(type);
+    }
+
+    // Turns this piece into a freshly spawned piece of the given type
+    public void reset(PieceType type){
         this.type = type;
         this.rotationIndex = 0;
         this.centerX = 4;
@@ -27,6 +35,7 @@ public class Piece {
 
         // Each piece type has a default piece grid in its un-rotated state, to be used when it spawns
         this.currentPieceGrid = PieceType.getPieceGrid(type);
+        this.shapeRows = PieceType.getShape(type, 0);
     }
 
     // Creates a copy of a piece, transferring all parameters
@@ -36,18 +45,44 @@ public class Piece {
         clone.centerX = this.centerX;
         clone.centerY = this.centerY;
         clone.currentPieceGrid = this.currentPieceGrid;
+        clone.shapeRows = this.shapeRows;
         return clone;
     }
 
+    // Returns the type of the piece
+    public PieceType getType(){
+        return type;
+    }
+
+    // Returns the rotation index of the piece
+    public int getRotation(){
+        return rotationIndex;
+    }
+
+    // Returns the column of the center of the piece
+    public int getCenterX(){
+        return centerX;
+    }
+
+    // Returns the row of the center of the piece
+    public int getCenterY(){
+        return centerY;
+    }
+
     // Rotates clockwise
     public void rotateCW(){
-        this.rotationIndex = (this.rotationIndex+1)%4; // Rotating a piece with rotation index 3 clockwise means making it upright again (set rotIndex to 0)
-        this.currentPieceGrid = PieceType.getPieceGridFromRot(this.type, this.rotationIndex);
+        setRotation((this.rotationIndex+1)%4); // Rotating a piece with rotation index 3 clockwise means making it upright again (set rotIndex to 0)
     }
 
     // Rotates counterclockwise
     public void rotateCCW(){
-        this.rotationIndex = (this.rotationIndex+3)%4; // rotating CCW is just rotating CW 3 times
-        this.currentPieceGrid = PieceType.getPieceGridFromRot(this.type, this.rotationIndex);
+        setRotation((this.rotationIndex+3)%4); // rotating CCW is just rotating CW 3 times
+    }
+
+    // Sets the rotation index, looking up the precomputed grid of that rotation
+    public void setRotation(int rotationIndex){
+        this.rotationIndex = rotationIndex;
+        this.currentPieceGrid = PieceType.getPieceGridFromRot(this.type, rotationIndex);
+        this.shapeRows = PieceType.getShape(this.type, rotationIndex);
     }
 }
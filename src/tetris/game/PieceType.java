@@ -8,14 +8,28 @@
 package tetris.game;
 
 public enum PieceType {
-    J(0), Z(1), S(2), L(3), T(4), O(5), I(6), GHOST(7), NULL(-1); // Ghost = drop marker, null = blank
+    J(0), Z(1), S(2), L(3), T(4), O(5), I(6), GHOST(7), GARBAGE(8), NULL(-1); // Ghost = drop marker, garbage = rows sent by an opponent, null = blank
 
     private final int id; // Easy way to call the piece types
     private static final PieceType[][][] pieceGrid; // Holds all the piece grids (called by first index for specific piece type)
+    private static final PieceType[] byId; // Piece types indexed by their id, used to look up the colour plane of the board
 
-    //wall kick data
-    public static final int[][][] wallKickDataJLSTZ;
-    public static final int[][][] wallKickDataI; // The "I" piece handles wall kicks in a unique way
+    //wall kick data, only read through getKickCount, getKickX and getKickY once converted to board translations
+    private static final int[][][] wallKickDataJLSTZ;
+    private static final int[][][] wallKickDataI; // The "I" piece handles wall kicks in a unique way
+
+    //Number of tetrominoes and rotation states of each tetromino
+    public static final int PIECE_COUNT = 7;
+    public static final int ROTATION_COUNT = 4;
+
+    //Tables precomputed once for every piece type (first index) and rotation index (second index)
+    //They are shared by every piece and must never be modified
+    private static final PieceType[][][][] rotatedGrids; // The rotated piece grids
+    private static final int[][][] shapes; // Row masks of the rotated piece grids, see getRowMasks
+    private static final int[][][] cells; // Offsets of the 4 filled squares in the piece grid, stored as column, row pairs
+    private static final int[][][] bounds; // Bounding box of the filled squares: min column, max column, min row, max row
+    private static final int[][][] columnBottoms; // Lowest filled row of each column of the piece grid (-1 if the column is empty)
+    private static final int[][][][][] kicks; // Wall kick translations on the board, third index is 0 for clockwise and 1 for counterclockwise
 
     //Constructor to initialize the id of each piece type
     PieceType(int id) {
@@ -29,6 +43,13 @@ public enum PieceType {
 
     // Initializes wall kicks and default pieceGrids
     static {
+        byId = new PieceType[9];
+        for (PieceType type : values()) {
+            if (type.id >= 0) {
+                byId[type.id] = type;
+            }
+        }
+
         pieceGrid = new PieceType[7][][];
 
         //J
@@ -82,6 +103,71 @@ public enum PieceType {
                 {{0, 0}, {2, 0}, {-1, 0}, {2, 1}, {-1, -2}},
                 {{0, 0}, {1, 0}, {-2, 0}, {1, -2}, {-2, 1}}
         };
+
+        rotatedGrids = new PieceType[PIECE_COUNT][ROTATION_COUNT][][];
+        shapes = new int[PIECE_COUNT][ROTATION_COUNT][];
+        cells = new int[PIECE_COUNT][ROTATION_COUNT][];
+        bounds = new int[PIECE_COUNT][ROTATION_COUNT][];
+        columnBottoms = new int[PIECE_COUNT][ROTATION_COUNT][];
+        kicks = new int[PIECE_COUNT][ROTATION_COUNT][2][][];
+
+        for (int type = 0; type < PIECE_COUNT; type++) {
+            int[][][] wallKick = type == I.id ? wallKickDataI : wallKickDataJLSTZ;
+
+            for (int rot = 0; rot < ROTATION_COUNT; rot++) {
+                //Every rotation is the previous rotation turned 90 degrees clockwise
+                rotatedGrids[type][rot] = rot == 0 ? pieceGrid[type] : rotateCW(rotatedGrids[type][rot - 1]);
+                shapes[type][rot] = getRowMasks(rotatedGrids[type][rot]);
+
+                //Find the filled squares and their bounding box
+                PieceType[][] grid = rotatedGrids[type][rot];
+                int[] cell = new int[8];
+                int[] box = {grid.length, -1, grid.length, -1};
+                int[] bottom = new int[grid.length];
+                java.util.Arrays.fill(bottom, -1);
+                int found = 0;
+                for (int i = 0; i < grid.length; i++) {
+                    for (int j = 0; j < grid.length; j++) {
+                        if (grid[i][j] == NULL) {
+                            continue;
+                        }
+                        cell[found++] = j;
+                        cell[found++] = i;
+                        box[0] = Math.min(box[0], j);
+                        box[1] = Math.max(box[1], j);
+                        box[2] = Math.min(box[2], i);
+                        box[3] = Math.max(box[3], i);
+                        bottom[j] = i;
+                    }
+                }
+                cells[type][rot] = cell;
+                bounds[type][rot] = box;
+                columnBottoms[type][rot] = bottom;
+
+                //Convert the SRS data to board translations (the y-axis of the SRS data points upwards)
+                //Clockwise from rot uses the kicks of rot, counterclockwise from rot uses the negated kicks of the rotation it lands on
+                int ccwRot = (rot + 3) % ROTATION_COUNT;
+                int[][] cw = new int[wallKick[rot].length][];
+                int[][] ccw = new int[wallKick[ccwRot].length][];
+                for (int i = 0; i < cw.length; i++) {
+                    cw[i] = new int[]{wallKick[rot][i][0], -wallKick[rot][i][1]};
+                    ccw[i] = new int[]{-wallKick[ccwRot][i][0], wallKick[ccwRot][i][1]};
+                }
+                kicks[type][rot][0] = cw;
+                kicks[type][rot][1] = ccw;
+            }
+        }
+    }
+
+    // Returns a copy of the piece grid rotated 90 degrees clockwise
+    private static PieceType[][] rotateCW(PieceType[][] grid) {
+        PieceType[][] rotated = new PieceType[grid.length][grid.length];
+        for (int j = grid.length - 1; j >= 0; j--) {
+            for (int k = 0; k < grid.length; k++) {
+                rotated[k][j] = grid[grid.length - j - 1][k]; // Rotate each index
+            }
+        }
+        return rotated;
     }
 
     /**
@@ -105,20 +191,120 @@ public enum PieceType {
      * @return The piece grid for the given rotation.
      */
     public static PieceType[][] getPieceGridFromRot(PieceType pieceType, int rotIdx) {
+        return rotatedGrids[pieceType.id][rotIdx];
+    }
 
-        PieceType[][] ret = getPieceGrid(pieceType); // Rotated piece grid
-        PieceType[][] temp;  // Temporary piece grid to hold rotated piece grid
+    /**
+     * Returns the row masks of the piece grid for the given rotation. Must not be modified.
+     *
+     * @param pieceType The piece type to get the row masks for.
+     * @param rotIdx The rotation index to get the row masks for.
+     * @return The row masks of the rotated piece grid.
+     */
+    public static int[] getShape(PieceType pieceType, int rotIdx) {
+        return shapes[pieceType.id][rotIdx];
+    }
 
-        for (int i = 1; i <= rotIdx; i++) { // Rotate the piece grid 90 degrees until the rotation index is reached
-            temp = new PieceType[ret.length][ret.length];
+    /**
+     * Returns the offsets of the filled squares in the piece grid for the given rotation. Must not be modified.
+     *
+     * @param pieceType The piece type to get the squares for.
+     * @param rotIdx The rotation index to get the squares for.
+     * @return Column and row pairs of the 4 filled squares.
+     */
+    public static int[] getCells(PieceType pieceType, int rotIdx) {
+        return cells[pieceType.id][rotIdx];
+    }
 
-            for (int j = ret.length - 1; j >= 0; j--) {
-                for (int k = 0; k < ret.length; k++) {
-                    temp[k][j] = ret[ret.length - j - 1][k]; // Rotate each index
+    /**
+     * Returns the bounding box of the filled squares in the piece grid for the given rotation. Must not be modified.
+     *
+     * @param pieceType The piece type to get the bounding box for.
+     * @param rotIdx The rotation index to get the bounding box for.
+     * @return The min column, max column, min row and max row of the filled squares.
+     */
+    public static int[] getBounds(PieceType pieceType, int rotIdx) {
+        return bounds[pieceType.id][rotIdx];
+    }
+
+    /**
+     * Returns the lowest filled row of every column of the piece grid for the given rotation. Must not be modified.
+     *
+     * @param pieceType The piece type to get the column bottoms for.
+     * @param rotIdx The rotation index to get the column bottoms for.
+     * @return The lowest filled row of each column, or -1 if the column has no filled squares.
+     */
+    public static int[] getColumnBottoms(PieceType pieceType, int rotIdx) {
+        return columnBottoms[pieceType.id][rotIdx];
+    }
+
+    /**
+     * Returns the number of wall kicks to try when rotating away from the given rotation.
+     *
+     * The kicks are tried in order, from 0 to the count. They are read one at a time with getKickX and getKickY, so
+     * the table can't be modified by its users.
+     *
+     * @param pieceType The piece type being rotated.
+     * @param rotIdx The rotation index the piece is rotating from.
+     * @param clockwise True for a clockwise rotation, false for counterclockwise.
+     * @return The number of wall kicks.
+     */
+    public static int getKickCount(PieceType pieceType, int rotIdx, boolean clockwise) {
+        return kicks[pieceType.id][rotIdx][clockwise ? 0 : 1].length;
+    }
+
+    /**
+     * Returns the column translation of a wall kick. It can be added directly to the center of the piece.
+     *
+     * @param pieceType The piece type being rotated.
+     * @param rotIdx The rotation index the piece is rotating from.
+     * @param clockwise True for a clockwise rotation, false for counterclockwise.
+     * @param kick The index of the wall kick, less than getKickCount.
+     * @return The column translation.
+     */
+    public static int getKickX(PieceType pieceType, int rotIdx, boolean clockwise, int kick) {
+        return kicks[pieceType.id][rotIdx][clockwise ? 0 : 1][kick][0];
+    }
+
+    /**
+     * Returns the row translation of a wall kick. It can be added directly to the center of the piece.
+     *
+     * @param pieceType The piece type being rotated.
+     * @param rotIdx The rotation index the piece is rotating from.
+     * @param clockwise True for a clockwise rotation, false for counterclockwise.
+     * @param kick The index of the wall kick, less than getKickCount.
+     * @return The row translation.
+     */
+    public static int getKickY(PieceType pieceType, int rotIdx, boolean clockwise, int kick) {
+        return kicks[pieceType.id][rotIdx][clockwise ? 0 : 1][kick][1];
+    }
+
+    /**
+     * Returns the piece type with the given id.
+     *
+     * @param id The id of the piece type, -1 for an empty square.
+     * @return The piece type with the given id.
+     */
+    public static PieceType fromId(int id) {
+        return id < 0 ? NULL : byId[id];
+    }
+
+    /**
+     * Converts a piece grid to the row masks used by the board.
+     * Bit j of a row mask is set if column j of that row of the piece grid is filled.
+     *
+     * @param grid The piece grid to convert.
+     * @return The row masks of the piece grid.
+     */
+    public static int[] getRowMasks(PieceType[][] grid) {
+        int[] masks = new int[grid.length];
+        for (int i = 0; i < grid.length; i++) {
+            for (int j = 0; j < grid[i].length; j++) {
+                if (grid[i][j] != NULL) {
+                    masks[i] |= 1 << j;
                 }
             }
-            ret = temp;
         }
-        return ret;
+        return masks;
     }
 }
@@ -0,0 +1,153 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Turns the keys a player is holding into moves of a TetrisEngine.
+ *
+ * The keys are given as a bitmask of actions once every physics update, so the same controller is used for a keyboard
+ * and for replays. Every timer is measured with the clock of the engine, which makes the moves only depend on the
+ * masks and the ticks they were given at.
+ */
+package tetris.game;
+
+import tetris.util.FrameTimer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class PlayerController {
+    //Bits of the action mask
+    public static final int LEFT = 1;
+    public static final int RIGHT = 1 << 1;
+    public static final int SOFT_DROP = 1 << 2;
+    public static final int HARD_DROP = 1 << 3;
+    public static final int ROTATE_CW = 1 << 4;
+    public static final int ROTATE_CCW = 1 << 5;
+    public static final int HOLD = 1 << 6;
+
+    //Every bit that is used
+    public static final int ALL_ACTIONS = (1 << 7) - 1;
+
+    //The game being controlled
+    private final TetrisEngine engine;
+
+    // Delay between auto-repeat soft drop
+    private final FrameTimer softDropTimer;
+
+    // The initial long delay when moving left
+    private final FrameTimer moveLeftTimerDAS;
+    // The shorter delay when moving left after init DAS delay has passed
+    private final FrameTimer moveLeftTimer;
+
+    // The initial long delay when moving right
+    private final FrameTimer moveRightTimerDAS;
+    // The shorter delay when moving right after init DAS delay has passed
+    private final FrameTimer moveRightTimer;
+
+    //Actions that were held in the last update, to prevent a held key from repeating
+    private int held;
+
+    public PlayerController(TetrisEngine engine) {
+        this.engine = engine;
+
+        //Initialize the timers for keybinds
+        softDropTimer = new FrameTimer(0.06, engine.getClock());
+        moveLeftTimerDAS = new FrameTimer(0.167, engine.getClock());
+        moveLeftTimer = new FrameTimer(0.033, engine.getClock());
+        moveRightTimerDAS = new FrameTimer(0.167, engine.getClock());
+        moveRightTimer = new FrameTimer(0.033, engine.getClock());
+    }
+
+    /**
+     * Handles the actions held during one physics update.
+     *
+     * @param actions Bitmask of the actions that are held
+     * @return Bitmask of the actions that were pressed in this update (held now, but not in the last update)
+     */
+    public int update(int actions) {
+        int pressed = actions & ~held;
+
+        // "soft dropping" is rate limited to prevent a short press from bringing the piece all the way down
+        if (softDropTimer.isDone() && (actions & SOFT_DROP) != 0) {
+            softDropTimer.reset();
+            engine.dropPiece();
+        }
+        // "hard dropping" is disabled if the key is held to prevent multiple pieces from being hard dropped
+        if ((pressed & HARD_DROP) != 0) {
+            engine.hardDrop();
+        }
+
+        // moving left and right is controlled by https://tetris.fandom.com/wiki/DAS to avoid operating system quirks
+        // In the website, you can see that the initial delay is longer than the subsequent delays.
+        // When move is called, set timers to prevent a hold key from dragging piece across the board
+        if ((actions & LEFT) != 0) {
+            if (moveLeftTimerDAS.isDisabled()) { //Longer initial timer
+                engine.moveLeft();
+                moveLeftTimerDAS.reset();
+                moveLeftTimer.reset();
+            } else if (moveLeftTimerDAS.isDone() && moveLeftTimer.isDone()) { //Shorter DAS timer
+                engine.moveLeft();
+                moveLeftTimer.reset();
+            }
+        } else {
+            // The key isn't held anymore, so the initial long delay applies again next time the key is pressed
+            moveLeftTimerDAS.disable();
+        }
+
+        if ((actions & RIGHT) != 0) {
+            if (moveRightTimerDAS.isDisabled()) { //Longer initial timer
+                engine.moveRight();
+                moveRightTimerDAS.reset();
+                moveRightTimer.reset();
+            } else if (moveRightTimerDAS.isDone() && moveRightTimer.isDone()) { //Shorter DAS timer
+                engine.moveRight();
+                moveRightTimer.reset();
+            }
+        } else {
+            // The key isn't held anymore, so the initial long delay applies again next time the key is pressed
+            moveRightTimerDAS.disable();
+        }
+
+        //Once a rotation has occurred, the person must lift the key to rotate again.
+        //Done in if else to avoid conflicts with both keys being pressed at the same time.
+        if ((pressed & ROTATE_CW) != 0) {
+            engine.rotateCW();
+        } else if ((pressed & ROTATE_CCW) != 0) {
+            engine.rotateCCW();
+        }
+
+        //Prevent repeating the same key press.
+        if ((pressed & HOLD) != 0) {
+            engine.holdPiece();
+        }
+
+        // Remember the held keys so that the key functions are not called again until the key is released.
+        held = actions;
+        return pressed;
+    }
+
+    //Return the actions held in the last update
+    public int getHeld() {
+        return held;
+    }
+
+    //Write the held actions and the timers, used for replay keyframes
+    public void writeState(DataOutput out) throws IOException {
+        out.writeByte(held);
+        softDropTimer.writeState(out);
+        moveLeftTimerDAS.writeState(out);
+        moveLeftTimer.writeState(out);
+        moveRightTimerDAS.writeState(out);
+        moveRightTimer.writeState(out);
+    }
+
+    //Read a state written by writeState
+    public void readState(DataInput in) throws IOException {
+        held = in.readByte();
+        softDropTimer.readState(in);
+        moveLeftTimerDAS.readState(in);
+        moveLeftTimer.readState(in);
+        moveRightTimerDAS.readState(in);
+        moveRightTimer.readState(in);
+    }
+}
@@ -0,0 +1,731 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ * Date: June 18, 2022
+ *
+ * Class to handle tetris game logic: the board, the falling piece, the held piece, the queue of next pieces, timers
+ * and objectives.
+ *
+ * It does not draw anything and does not use java.awt, so games can be simulated without a screen (for example on a
+ * headless build server). Tetris is the view that draws an engine on the screen.
+ *
+ * The current falling piece and the grid are seperated so that the piece can be easily manipulated.
+ */
+
+package tetris.game;
+
+import tetris.game.randomizer.Randomizer;
+import tetris.game.randomizer.RandomizerSevenBag;
+import tetris.util.Clock;
+import tetris.util.FrameTimer;
+import tetris.util.TickClock;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+public class TetrisEngine {
+    //Rows of garbage sent to the opponent for clearing 0, 1, 2, 3 or 4 lines with one piece (versus only)
+    public static final int[] ATTACK = {0, 0, 1, 2, 4};
+
+    //Most garbage rows that rise into the board after one piece is locked, the rest rise after the next pieces
+    public static final int MAX_GARBAGE_PER_PIECE = 8;
+
+    //Store the randomizer that will be used to generate the next piece
+    private Randomizer randomizer;
+
+    // The board of all locked pieces
+    public Board board;
+
+    // The currently held piece
+    public Piece hold;
+
+    // Can the user switch their held piece?
+    public boolean canSwitchHold;
+
+    // Currently actively dropping piece
+    public Piece current;
+
+    // Number of lines cleared since last line goal was met (or since game started if none met)
+    public int linesCleared;
+
+    // Amount of lines required to be cleared before something happens
+    public int lineGoal;
+
+    // Start time of the game, used for game timer
+    private long timeStarted;
+
+    // Time between each drop
+    public FrameTimer dropTimer;
+
+    // Time after piece lands before it is locked and set in place
+    public FrameTimer lockTimer;
+
+    // Has the game been lost?
+    private boolean died;
+
+    // Has the game been won?
+    private boolean objectiveCompleted;
+
+    // Stores the score at the end of the game, to be displayed on results screen
+    private long finalScore;
+
+    // The current frame
+    private long currentUpdateFrame;
+
+    // The latest time that a soft drop command was received
+    private long lastSoftDrop;
+
+    // The current game mode
+    private GameMode gameMode;
+
+    // Current level; how fast pieces are currently dropping
+    private int level;
+
+    // Number of pieces locked into the board
+    private int piecesPlaced;
+
+    // Garbage rows sent by opponents that will rise into the board when a piece is locked without clearing a line
+    private int incomingGarbage;
+
+    // Garbage rows this player has sent that have not been collected by the match yet
+    private int outgoingGarbage;
+
+    // State of the generator of garbage hole columns, seeded from the game seed so versus games are reproducible
+    private long garbageState;
+
+    // The clock that all the game timing is measured with
+    private final Clock clock;
+
+    // The only piece object used for the hold piece, so holding and restoring a snapshot don't create a piece
+    private final Piece spareHold;
+
+    // Snapshot used by writeState and readState
+    private GameSnapshot stateBuffer;
+
+    // Cached result of findDropHeight, along with the piece position and board version it was computed for
+    private int cachedDropHeight;
+    private PieceType cachedDropType;
+    private int cachedDropRotation, cachedDropX, cachedDropY, cachedDropVersion;
+
+    /*
+    Creates a new tetris game for a specific game mode, timed in real time
+    @param gameMode: The selected game mode
+     */
+    public TetrisEngine(GameMode gameMode) {
+        this(gameMode, Clock.SYSTEM);
+    }
+
+    /*
+    Creates a new tetris game for a specific game mode, with a random seed
+    @param gameMode: The selected game mode
+    @param clock: The clock used for all game timing. Use a TickClock for reproducible games
+     */
+    public TetrisEngine(GameMode gameMode, Clock clock) {
+        this(gameMode, clock, new Random().nextLong());
+    }
+
+    /*
+    Creates a new tetris game for a specific game mode
+    @param gameMode: The selected game mode
+    @param clock: The clock used for all game timing. Use a TickClock for reproducible games
+    @param seed: The seed of the randomizer. The same seed always gives the same pieces
+     */
+    public TetrisEngine(GameMode gameMode, Clock clock, long seed) {
+        this.clock = clock;
+
+        // Initialize the randomizer
+        this.randomizer = new RandomizerSevenBag(seed);
+        this.garbageState = seed;
+
+        //Initialize the board. The board is 30 x 10 because it creates a buffer on the top of the game board for pieces to be placed
+        //It also allows for future tetris ghost pieces (multiplayer) to be rendered
+        this.board = new Board();
+
+        //Initialize and store self-explanatory variables
+        this.linesCleared = 0;
+        this.timeStarted = -1; // The game has not started yet and is still initializing so don't count the time yet
+        this.died = false;
+        this.gameMode = gameMode;
+        this.canSwitchHold = true;
+        this.lastSoftDrop = currentTimeMillis() - 500; // Hard drops are allowed straight away
+
+        //Generate the first piece
+        spawnPiece();
+        spareHold = new Piece(current.type); //Nothing is held yet, its type is set when a piece is held
+
+        //Start the leveling system
+        increaseLevel();
+
+        if(gameMode == GameMode.FORTY_LINES){ //Line objective is 40 lines
+            lineGoal = 40;
+        } else if (gameMode == GameMode.BLITZ) {
+            //Blitz levels objective starts at 3 and gradually increases
+            lineGoal = 3;
+        }
+
+        //Set amount of time before timer locks
+        lockTimer = new FrameTimer(0.8, clock);
+    }
+
+    // Runs physics code, called by guitetris
+    public void update(){
+        //Get current time, used for oscillating animation of piece when it is on the ground but not locked
+        this.currentUpdateFrame++; //Get current time
+        if(died || objectiveCompleted){
+            return;
+        }
+        if(timeStarted == -1){ //Start the timer if it hasn't started yet
+            timeStarted = currentTimeMillis();
+            dropTimer.reset(); // Gravity is timed from the start of the game, not from when it was created
+        }
+        if(dropTimer.isDone()){
+            dropPiece();
+            dropTimer.reset();
+        }
+        if (!onGround()) {
+            lockTimer.disable();
+        } else {
+            if(lockTimer.isDone()){
+                setPiece();
+                lastSoftDrop = currentTimeMillis();
+                lockTimer.disable();
+            } else if(lockTimer.isDisabled()){
+                lockTimer.reset();
+            }
+        }
+        checkObjectives();
+    }
+
+    //The following two methods were separated for expandability reasons (more animations were wanted)
+
+    /**
+     * Attempt to move the current Tetris piece to the right.
+     * This function is called when the user clicks the key to move the piece to the right
+     */
+    public void moveRight(){
+        //Check if movement to the right is legal before moving real piece
+        if(canPlace(current.type, current.rotationIndex, current.centerX + 1, current.centerY)){
+            current.centerX++;
+        }
+    }
+
+    /**
+     * Attempt to move the current Tetris piece to the left.
+     * This function is called when the user clicks the key to move the piece to the left
+     */
+    public void moveLeft(){
+        //Check if movement to the left is legal before moving real piece
+        if(canPlace(current.type, current.rotationIndex, current.centerX - 1, current.centerY)){
+            current.centerX--;
+        }
+    }
+
+
+    /**
+     * Drop the piece by 1 block.
+     * Called during soft drop, or gravity.
+     */
+    public void dropPiece(){
+        //Check if moving down by 1 is legal before moving real piece
+        if(canPlace(current.type, current.rotationIndex, current.centerX, current.centerY + 1)){
+            current.centerY++;
+        }
+    }
+
+    /**
+     * Find the lowest height the block can go if it were to continue dropping downwards
+     */
+    public int findDropHeight(){
+        //The drop height only changes when the piece moves or the board changes, so reuse the last result if possible
+        if(cachedDropType != current.type || cachedDropRotation != current.rotationIndex || cachedDropX != current.centerX
+                || cachedDropY != current.centerY || cachedDropVersion != board.getVersion()){
+            cachedDropType = current.type;
+            cachedDropRotation = current.rotationIndex;
+            cachedDropX = current.centerX;
+            cachedDropY = current.centerY;
+            cachedDropVersion = board.getVersion();
+            cachedDropHeight = board.findDropHeight(current.type, current.rotationIndex, current.centerX, current.centerY);
+        }
+        return cachedDropHeight;
+    }
+
+    /**
+     * Hard drop the piece downwards.
+     */
+    public void hardDrop(){
+        //Prevent accidental hard drops
+        //If the last soft drop was 500 milliseconds ago, don't allow a hard drop
+        //This can happen if a user wants to hard drop, but the soft drop timer finishes, leading to
+        //an accidental hard drop of the next piece.
+        if(currentTimeMillis() - lastSoftDrop < 500){
+            return;
+        }
+        current.centerY = findDropHeight(); //Set the block to the lowest height possible by gravity
+        setPiece(); // immediately lock piece in place
+    }
+
+    /**
+     * Sets the piece into the grid
+     */
+    public void setPiece(){
+        if(!checkLegal(current)) return; //Not legal, so piece setting not possible
+
+        // Put every square of the piece into the board (coordinates shifted by 1 to account for center position)
+        board.place(current.shapeRows, current.type, current.centerX - 1, current.centerY - 1);
+        piecesPlaced++;
+        if (!canSwitchHold) {
+            canSwitchHold = true; // Switch allowance resets on new piece being set
+        }
+        clearLines(); // Lines cleared if necessary
+        spawnPiece(); // Spawn next piece
+    }
+
+    /**
+     * Spawn a new random piece
+     */
+    public void spawnPiece(){
+        spawnPiece(randomizer.popNextPiece());
+    }
+
+    // Spawns a piece of a specific type
+    public void spawnPiece(PieceType type){
+        if(current == null){
+            current = new Piece(type);
+        } else { // Reuse the piece object instead of creating a new one for every spawn
+            current.reset(type);
+        }
+        if(!checkLegal(current)){
+            die(); // If piece cannot be spawned, you lose.
+        }
+    }
+
+    /**
+     * Increase the level of the game (blitz-specific)
+     * The gravity increases exponentially with the level
+     */
+    public void increaseLevel(){
+        this.level++; //Increase the level
+        double secondsPerRow = 1.72 * Math.exp(-0.4* level); //Calculate the number of seconds per row based on the level
+        dropTimer = new FrameTimer(secondsPerRow, clock); //Set the drop timer to the number of seconds per row
+    }
+
+    /**
+     * Rotate the current piece clockwise.
+     * This function is called when the user clicks the key to rotate the piece clockwise
+     *
+     * This utilises wall kicks as described in the tetris SRS
+     */
+    public void rotateCW(){
+        rotate(true);
+    }
+
+    /**
+     * Rotate the current piece counterclockwise.
+     * This function is called when the user clicks the key to rotate the piece clockwise
+     *
+     * This utilises wall kicks as described in the tetris SRS
+     */
+    public void rotateCCW(){
+        rotate(false);
+    }
+
+    /**
+     * Rotate the current piece, trying every wall kick until one is legal.
+     *
+     * @param clockwise True to rotate clockwise, false to rotate counterclockwise
+     */
+    private void rotate(boolean clockwise){
+        if(current.type == PieceType.O){ //The O piece doesn't rotate or follow any wall kicks so we don't need to check
+            return;
+        }
+        //Rotation index after rotating
+        int rotation = (current.rotationIndex + (clockwise ? 1 : 3)) % PieceType.ROTATION_COUNT;
+
+        //Try all the different precomputed wall kicks of the piece ("I" piece wall kicks weirdly)
+        int kickCount = PieceType.getKickCount(current.type, current.rotationIndex, clockwise);
+        for (int i = 0; i < kickCount; i++) {
+            int kickX = PieceType.getKickX(current.type, current.rotationIndex, clockwise, i);
+            int kickY = PieceType.getKickY(current.type, current.rotationIndex, clockwise, i);
+            //If wall kick is legal, rotate the piece and translate it by the wall kick
+            if(canPlace(current.type, rotation, current.centerX + kickX, current.centerY + kickY)){
+                current.setRotation(rotation);
+                current.centerX += kickX;
+                current.centerY += kickY;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks if piece is on the ground. It does this by moving the piece downwards by 1 block and checking if it is legal.
+     * If it is not legal, it should be on the ground.
+     *
+     * There is an assumption made that the piece is legal
+     *
+     * @return If piece is on the ground
+     */
+    public boolean onGround(){
+        return !canPlace(current.type, current.rotationIndex, current.centerX, current.centerY + 1);
+    }
+
+    /**
+     * Checks the board for any lines that are full and clears them.
+     */
+    public void clearLines(){
+        //Every full row is added to the number of lines cleared
+        int cleared = board.clearLines();
+        this.linesCleared += cleared;
+
+        if(cleared > 0){
+            //Line clears attack. The attack first cancels garbage that is waiting to rise, the rest is sent
+            int attack = ATTACK[Math.min(cleared, ATTACK.length - 1)];
+            int cancelled = Math.min(attack, incomingGarbage);
+            incomingGarbage -= cancelled;
+            outgoingGarbage += attack - cancelled;
+        } else if(incomingGarbage > 0){
+            //No line was cleared, so waiting garbage rises into the board
+            int lines = Math.min(incomingGarbage, MAX_GARBAGE_PER_PIECE);
+            incomingGarbage -= lines;
+            if(!board.insertGarbage(lines, nextGarbageHole())){
+                die(); //The stack was pushed off the top of the board
+            }
+        }
+    }
+
+    // Returns the column of the hole of the next garbage rows
+    private int nextGarbageHole(){
+        //Linear congruential generator, the high bits are the most random
+        garbageState = garbageState * 6364136223846793005L + 1442695040888963407L;
+        return (int) ((garbageState >>> 33) % Board.COLUMNS);
+    }
+
+    /**
+     * Adds garbage rows sent by an opponent. They rise into the board the next time a piece is locked without
+     * clearing a line, unless they are cancelled by a line clear first.
+     *
+     * @param lines The number of garbage rows
+     */
+    public void receiveGarbage(int lines){
+        incomingGarbage += lines;
+    }
+
+    /**
+     * Returns the garbage rows this player has sent since the last call, to be given to an opponent.
+     *
+     * @return The number of garbage rows sent
+     */
+    public int takeOutgoingGarbage(){
+        int lines = outgoingGarbage;
+        outgoingGarbage = 0;
+        return lines;
+    }
+
+    /**
+     * @return The number of garbage rows waiting to rise into the board
+     */
+    public int getIncomingGarbage(){
+        return incomingGarbage;
+    }
+
+    /**
+     * Checks objectives of the game.
+     */
+    public void checkObjectives(){
+        if(linesCleared >= lineGoal){ //Beat line goal
+            if(gameMode == GameMode.FORTY_LINES){ //Game is over, the score is the time spent
+                objectiveCompleted(currentTimeMillis()-timeStarted);
+            } else if(gameMode == GameMode.BLITZ){ //Difficulty increased, line goal increased
+                increaseLevel();
+                lineGoal = 3*level;
+            }
+        }
+        //If 120 seconds have passed and the gamemode is blitz, the game is over
+        // The score is the lines cleared
+        if(currentTimeMillis()- timeStarted >= 120*1e3 && gameMode == GameMode.BLITZ){
+            objectiveCompleted(linesCleared);
+        }
+    }
+
+    /**
+     * Kills the player.
+     */
+    public void die(){
+        died = true;
+    }
+
+    /**
+     * @return True if the player is dead, false otherwise
+     */
+    public boolean isDied(){
+        return died;
+    }
+
+    /**
+     * Set objective completed.
+     */
+    public void objectiveCompleted(long finalScore){
+        this.finalScore = finalScore;
+        objectiveCompleted = true;
+    }
+
+    /**
+     * @return The final score of the player
+     */
+    public long getFinalScore() {
+        return this.finalScore;
+    }
+
+    /**
+     * @return True if the player has completed the objective, false otherwise
+     */
+    public boolean isObjectiveCompleted(){
+        return objectiveCompleted;
+    }
+
+    /**
+     * Holds the current piece.
+     * Used when the player presses the hold button.
+     */
+    public void holdPiece(){
+        if (!canSwitchHold) return; //Once a player holds, they can't hold again until they drop a piece
+        if(hold == null){
+            //If the player has not held a piece yet, hold the current piece and spawn a random piece
+            hold = spareHold;
+            hold.reset(current.type);
+            spawnPiece();
+        } else {
+            //Swap the current piece with the hold piece
+            PieceType temp = current.type;
+            spawnPiece(hold.type);
+            hold.reset(temp);
+        }
+        canSwitchHold = false; //They can no longer switch hold. This is reset when they drop a piece
+    }
+
+    /**
+     *
+     * Given a piece, check if it is legal to place it on the grid (doesn't overlap with any other pieces)
+     *
+     * @param piece The piece to check
+     * @return True if the piece is legal, false otherwise
+     */
+    public boolean checkLegal(Piece piece){
+        return canPlace(piece.type, piece.rotationIndex, piece.centerX, piece.centerY);
+    }
+
+    /**
+     * Probes whether a piece of the given type, rotation and position would be legal on the grid.
+     * Nothing is created, so this can be called as often as needed (movement, wall kicks, bots).
+     *
+     * @param type The type of the piece
+     * @param rotation The rotation index of the piece
+     * @param centerX The column of the center of the piece
+     * @param centerY The row of the center of the piece
+     * @return True if the piece would be legal, false otherwise
+     */
+    public boolean canPlace(PieceType type, int rotation, int centerX, int centerY){
+        return board.canPlace(type, rotation, centerX, centerY);
+    }
+
+    /**
+     * Returns a piece in the queue without removing it, used to show the user the next few pieces.
+     *
+     * @param index The position in the queue, 0 is the next piece to spawn
+     * @return The piece at that position
+     */
+    public PieceType getNextPiece(int index){
+        return randomizer.peek(index);
+    }
+
+    /**
+     * @return The number of pieces locked into the board
+     */
+    public int getPiecesPlaced(){
+        return piecesPlaced;
+    }
+
+    /**
+     * Returns a Zobrist hash of the state of the game that matters for searching: the board, the current and held
+     * piece types, whether holding is allowed and the first pieces of the queue.
+     * The board part is kept up to date by the board as pieces are placed and lines are cleared, so this is only a
+     * few XORs.
+     *
+     * @return The hash of the game state
+     */
+    public long getStateHash(){
+        long hash = board.getHash() ^ Zobrist.current(current.type) ^ Zobrist.hold(hold == null ? null : hold.type);
+        if(canSwitchHold){
+            hash ^= Zobrist.CAN_HOLD;
+        }
+        for(int i = 0; i < Zobrist.QUEUE_DEPTH; i++){
+            hash ^= Zobrist.queue(i, randomizer.peek(i));
+        }
+        return hash;
+    }
+
+    /**
+     * @return The seed of the randomizer
+     */
+    public long getSeed(){
+        return randomizer.getSeed();
+    }
+
+    /**
+     * @return True if the game timer has started
+     */
+    public boolean hasStarted(){
+        return timeStarted != -1;
+    }
+
+    /**
+     * @return The number of milliseconds since the game started, 0 if it has not started yet
+     */
+    public long getTimeElapsed(){
+        if(!hasStarted()){
+            return 0;
+        }
+        return currentTimeMillis() - timeStarted;
+    }
+
+    // Returns the time of the game clock in milliseconds
+    private long currentTimeMillis(){
+        return clock.nanoTime() / 1000000;
+    }
+
+    /**
+     * @return The clock that the game is timed with
+     */
+    public Clock getClock(){
+        return clock;
+    }
+
+    /**
+     * @return The number of physics updates since the game was created, used for animations
+     */
+    public long getUpdateFrame(){
+        return currentUpdateFrame;
+    }
+
+    /**
+     * Returns the current game mode.
+     * Allows Gui class to access the current game mode
+     */
+    public GameMode getGameMode() {
+        return gameMode;
+    }
+
+    /**
+     * Copies the full state of the game into a snapshot, without creating any objects.
+     * If the game is timed with a TickClock, its ticks are saved too.
+     *
+     * @param snapshot The snapshot to copy into
+     */
+    public void snapshot(GameSnapshot snapshot) {
+        snapshot.board.copyFrom(board);
+
+        snapshot.generatorState = randomizer.getGeneratorState();
+        snapshot.ensureQueueCapacity(randomizer.getQueueSize());
+        snapshot.queueSize = randomizer.copyQueue(snapshot.queue);
+        snapshot.bagSize = randomizer.copyBag(snapshot.bag);
+
+        snapshot.currentType = current.type.getId();
+        snapshot.currentRotation = current.rotationIndex;
+        snapshot.currentX = current.centerX;
+        snapshot.currentY = current.centerY;
+        snapshot.holdType = hold == null ? PieceType.NULL.getId() : hold.type.getId();
+        snapshot.canSwitchHold = canSwitchHold;
+
+        snapshot.linesCleared = linesCleared;
+        snapshot.lineGoal = lineGoal;
+        snapshot.level = level;
+        snapshot.piecesPlaced = piecesPlaced;
+        snapshot.dropLength = dropTimer.getLengthNanos();
+        snapshot.dropStart = dropTimer.getStartTime();
+        snapshot.dropDisabled = dropTimer.isDisabled();
+        snapshot.lockLength = lockTimer.getLengthNanos();
+        snapshot.lockStart = lockTimer.getStartTime();
+        snapshot.lockDisabled = lockTimer.isDisabled();
+        snapshot.timeStarted = timeStarted;
+        snapshot.lastSoftDrop = lastSoftDrop;
+        snapshot.currentUpdateFrame = currentUpdateFrame;
+        snapshot.died = died;
+        snapshot.objectiveCompleted = objectiveCompleted;
+        snapshot.finalScore = finalScore;
+        snapshot.incomingGarbage = incomingGarbage;
+        snapshot.outgoingGarbage = outgoingGarbage;
+        snapshot.garbageState = garbageState;
+        snapshot.clockTicks = clock instanceof TickClock ? ((TickClock) clock).getTicks() : -1;
+    }
+
+    /**
+     * Puts the game back into the state of a snapshot, without creating any objects.
+     * The snapshot must be of a game with the same game mode.
+     *
+     * @param snapshot The snapshot to restore
+     */
+    public void restore(GameSnapshot snapshot) {
+        board.copyFrom(snapshot.board);
+        randomizer.restoreState(snapshot.generatorState, snapshot.queue, snapshot.queueSize, snapshot.bag, snapshot.bagSize);
+
+        current.reset(PieceType.fromId(snapshot.currentType));
+        current.setRotation(snapshot.currentRotation);
+        current.centerX = snapshot.currentX;
+        current.centerY = snapshot.currentY;
+        if (snapshot.holdType == PieceType.NULL.getId()) {
+            hold = null;
+        } else {
+            hold = spareHold;
+            hold.reset(PieceType.fromId(snapshot.holdType));
+        }
+        canSwitchHold = snapshot.canSwitchHold;
+
+        linesCleared = snapshot.linesCleared;
+        lineGoal = snapshot.lineGoal;
+        level = snapshot.level;
+        piecesPlaced = snapshot.piecesPlaced;
+        dropTimer.restore(snapshot.dropLength, snapshot.dropStart, snapshot.dropDisabled);
+        lockTimer.restore(snapshot.lockLength, snapshot.lockStart, snapshot.lockDisabled);
+        timeStarted = snapshot.timeStarted;
+        lastSoftDrop = snapshot.lastSoftDrop;
+        currentUpdateFrame = snapshot.currentUpdateFrame;
+        died = snapshot.died;
+        objectiveCompleted = snapshot.objectiveCompleted;
+        finalScore = snapshot.finalScore;
+        incomingGarbage = snapshot.incomingGarbage;
+        outgoingGarbage = snapshot.outgoingGarbage;
+        garbageState = snapshot.garbageState;
+        if (snapshot.clockTicks != -1 && clock instanceof TickClock) {
+            ((TickClock) clock).setTicks(snapshot.clockTicks);
+        }
+    }
+
+    /**
+     * Writes the full state of the game, used for replay keyframes.
+     * The clock and the game mode are not written, the game reading the state must use the same ones.
+     *
+     * @param out The stream to write to
+     */
+    public void writeState(DataOutput out) throws IOException {
+        snapshot(getStateBuffer());
+        stateBuffer.write(out);
+    }
+
+    /**
+     * Reads a state written by writeState, replacing the state of this game.
+     *
+     * @param in The stream to read from
+     */
+    public void readState(DataInput in) throws IOException {
+        getStateBuffer().read(in);
+        restore(stateBuffer);
+    }
+
+    // Snapshot used to write and read states, created the first time it is needed
+    private GameSnapshot getStateBuffer() {
+        if (stateBuffer == null) {
+            stateBuffer = new GameSnapshot();
+        }
+        return stateBuffer;
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A local versus match between two or more players, each with their own TetrisEngine.
+ *
+ * Every game is timed with one shared TickClock, so all the boards move forward in lockstep: one call to update is one
+ * physics update of every player. Clearing lines sends garbage rows to the next player still alive, where they wait in
+ * the incoming garbage queue until they are cancelled by a line clear or rise into the board. The last player alive
+ * wins.
+ *
+ * Like TetrisEngine, this class does not draw anything, so matches can be simulated without a screen.
+ */
+package tetris.game;
+
+import tetris.util.TickClock;
+
+public class VersusMatch {
+    // Clock shared by every game of the match
+    private final TickClock clock;
+
+    // The games of the players and the controllers that turn their actions into moves
+    private final TetrisEngine[] players;
+    private final PlayerController[] controllers;
+
+    // Index of the player that won, -1 if the match is not over or nobody survived
+    // Volatile like over, as the result is drawn while the match is updated on another thread
+    private volatile int winner;
+
+    // Is the match over? Volatile since it is read when painting
+    private volatile boolean over;
+
+    /**
+     * Creates a match where every player gets the same pieces.
+     *
+     * @param playerCount The number of players, at least 2
+     * @param ticksPerSecond The number of physics updates in one second
+     * @param seed The seed of the pieces and the garbage holes
+     */
+    public VersusMatch(int playerCount, int ticksPerSecond, long seed) {
+        if (playerCount < 2) {
+            throw new IllegalArgumentException("A versus match needs at least 2 players");
+        }
+        this.clock = new TickClock(ticksPerSecond);
+        this.players = new TetrisEngine[playerCount];
+        this.controllers = new PlayerController[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            players[i] = new TetrisEngine(GameMode.VERSUS, clock, seed);
+            controllers[i] = new PlayerController(players[i]);
+        }
+        this.winner = -1;
+    }
+
+    /**
+     * Runs one physics update of every player, then sends the garbage of this update.
+     *
+     * Garbage is only exchanged once every player has been updated, so the order of the players doesn't change the
+     * result of a tick.
+     *
+     * @param actions Bitmask of the actions held by every player, see PlayerController
+     */
+    public void update(int[] actions) {
+        if (over) {
+            return;
+        }
+        clock.tick();
+        for (int i = 0; i < players.length; i++) {
+            if (players[i].isDied()) {
+                continue;
+            }
+            players[i].update();
+            controllers[i].update(actions[i]);
+        }
+
+        exchangeGarbage();
+
+        //The match ends when at most one player is alive
+        int alive = 0;
+        int last = -1;
+        for (int i = 0; i < players.length; i++) {
+            if (!players[i].isDied()) {
+                alive++;
+                last = i;
+            }
+        }
+        if (alive <= 1) {
+            winner = last; //Set first, so the winner is known as soon as the match is seen as over
+            over = true;
+        }
+    }
+
+    // Gives the garbage sent by every player to the next player that is still alive
+    private void exchangeGarbage() {
+        for (int i = 0; i < players.length; i++) {
+            int lines = players[i].takeOutgoingGarbage();
+            if (lines == 0 || players[i].isDied()) {
+                continue;
+            }
+            int target = getTarget(i);
+            if (target != -1) {
+                players[target].receiveGarbage(lines);
+            }
+        }
+    }
+
+    /**
+     * Returns who the garbage of a player is sent to: the next player after them that is still alive.
+     *
+     * @param player The index of the player sending garbage
+     * @return The index of the target, -1 if every other player is dead
+     */
+    public int getTarget(int player) {
+        for (int i = 1; i < players.length; i++) {
+            int target = (player + i) % players.length;
+            if (!players[target].isDied()) {
+                return target;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The number of players
+     */
+    public int getPlayerCount() {
+        return players.length;
+    }
+
+    /**
+     * @return The game of a player
+     */
+    public TetrisEngine getPlayer(int index) {
+        return players[index];
+    }
+
+    /**
+     * @return The clock shared by every game of the match
+     */
+    public TickClock getClock() {
+        return clock;
+    }
+
+    /**
+     * @return True if at most one player is still alive
+     */
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * @return The index of the player that won, -1 if the match is not over or every player topped out on the same tick
+     */
+    public int getWinner() {
+        return winner;
+    }
+}
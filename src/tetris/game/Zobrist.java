@@ -0,0 +1,107 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Zobrist keys for hashing game states.
+ *
+ * Every square of the board has a random 64 bit key, and the hash of a board is the XOR of the keys of its filled
+ * squares. Because XOR undoes itself, the hash can be updated when squares change instead of being recomputed.
+ * To update a whole row at once, the keys of each half of a row are combined ahead of time for every possible half
+ * row, so the hash of any row is two table lookups.
+ *
+ * The current piece, the held piece and the first pieces of the queue have keys too, so a whole game state can be
+ * hashed from the board hash with a few more XORs.
+ *
+ * The keys come from a fixed seed, so hashes are the same on every run.
+ */
+package tetris.game;
+
+public final class Zobrist {
+    //Number of queue positions with keys
+    public static final int QUEUE_DEPTH = 8;
+
+    //Columns in the low half of a row, the rest are in the high half
+    private static final int HALF = 5;
+
+    //Combined keys of every possible low and high half of every row
+    private static final long[][] rowLow = new long[Board.ROWS][1 << HALF];
+    private static final long[][] rowHigh = new long[Board.ROWS][1 << (Board.COLUMNS - HALF)];
+
+    //Keys of the current piece, the held piece and the pieces of the queue
+    private static final long[] current = new long[PieceType.PIECE_COUNT];
+    private static final long[] hold = new long[PieceType.PIECE_COUNT];
+    private static final long[][] queue = new long[QUEUE_DEPTH][PieceType.PIECE_COUNT];
+
+    //Key of being allowed to hold
+    public static final long CAN_HOLD;
+
+    //State of the generator the keys are made with (SplitMix64)
+    private static long seed = 0x5EED5EED5EEDL;
+
+    static {
+        for (int row = 0; row < Board.ROWS; row++) {
+            long[] squares = new long[Board.COLUMNS];
+            for (int column = 0; column < Board.COLUMNS; column++) {
+                squares[column] = nextKey();
+            }
+            //The key of a half row is the XOR of the keys of its filled squares
+            for (int mask = 0; mask < rowLow[row].length; mask++) {
+                for (int column = 0; column < HALF; column++) {
+                    if ((mask & (1 << column)) != 0) {
+                        rowLow[row][mask] ^= squares[column];
+                    }
+                }
+            }
+            for (int mask = 0; mask < rowHigh[row].length; mask++) {
+                for (int column = HALF; column < Board.COLUMNS; column++) {
+                    if ((mask & (1 << (column - HALF))) != 0) {
+                        rowHigh[row][mask] ^= squares[column];
+                    }
+                }
+            }
+        }
+        for (int type = 0; type < PieceType.PIECE_COUNT; type++) {
+            current[type] = nextKey();
+            hold[type] = nextKey();
+            for (int i = 0; i < QUEUE_DEPTH; i++) {
+                queue[i][type] = nextKey();
+            }
+        }
+        CAN_HOLD = nextKey();
+    }
+
+    private Zobrist() {
+    }
+
+    // Next random key, see https://prng.di.unimi.it/splitmix64.c
+    private static long nextKey() {
+        seed += 0x9E3779B97F4A7C15L;
+        long z = seed;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @param row The board row
+     * @param mask The filled squares of the row, bit j is column j
+     * @return The XOR of the keys of the filled squares of the row
+     */
+    public static long row(int row, int mask) {
+        return rowLow[row][mask & ((1 << HALF) - 1)] ^ rowHigh[row][mask >>> HALF];
+    }
+
+    //Return the key of the current piece type
+    public static long current(PieceType type) {
+        return current[type.getId()];
+    }
+
+    //Return the key of the held piece type, 0 if nothing is held
+    public static long hold(PieceType type) {
+        return type == null || type == PieceType.NULL ? 0 : hold[type.getId()];
+    }
+
+    //Return the key of a piece type at a position of the queue
+    public static long queue(int index, PieceType type) {
+        return queue[index][type.getId()];
+    }
+}
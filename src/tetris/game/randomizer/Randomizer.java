@@ -9,55 +9,98 @@
  * In this game, there is only one randomizer: RandomizerSevenBag.
  *
  * In the future, if we want to add more randomizers, we can extend this class easily.
+ *
+ * The randomizer has its own seeded random number generator, so the same seed always gives the same sequence of
+ * pieces (used for replays and seeded races). Upcoming pieces are stored in a ring buffer of piece ids, so looking at
+ * the next pieces does not create any objects.
  */
 package tetris.game.randomizer;
 
 import tetris.game.PieceType;
 
-import java.util.*;
+import java.util.Random;
 
 public abstract class Randomizer {
-    //A list of all the pieces in the game.
-    protected List<PieceType> allPieces;
+    //All the pieces in the game.
+    protected static final PieceType[] ALL_PIECES = {PieceType.I, PieceType.J, PieceType.L, PieceType.O, PieceType.S, PieceType.T, PieceType.Z};
+
+    //The seed the randomizer was created with.
+    private final long seed;
+
+    //State of the random number generator (SplitMix64).
+    private long state;
 
-    //The bag of pieces.
-    protected Queue<PieceType> bag;
+    //Ring buffer of the ids of the upcoming pieces. The length is always a power of two.
+    private byte[] queue;
 
-    // Constructor class for Randomizer.
-    // Initializes the above variables.
+    //Index of the next piece in the ring buffer, and the number of pieces in it.
+    private int head;
+    private int size;
+
+    // Constructor for a randomizer with a random seed.
     public Randomizer(){
-        //Initialize the list of all pieces.
-        allPieces = Arrays.asList(PieceType.I, PieceType.J, PieceType.L, PieceType.O, PieceType.S, PieceType.T, PieceType.Z);
+        this(new Random().nextLong());
+    }
 
-        //Initialize the bag.
-        bag = new LinkedList<>();
+    // Constructor for a randomizer with the given seed.
+    public Randomizer(long seed){
+        this.seed = seed;
+        this.state = seed;
+        this.queue = new byte[16];
     }
 
-    //Called when the bag does not have enough pieces.
+    //Called when the bag does not have enough pieces. Should add pieces with addPiece.
     protected abstract void fillBag();
 
     /**
-     * Return an ArrayList of PieceType objects. Used to show the user the next few pieces.
+     * Adds a piece to the end of the queue.
+     * The queue only grows when a preview longer than it is requested.
      *
-     * @param amount The number of pieces to be returned.
-     * @return ArrayList of PieceType objects (size = amount requested)
+     * @param piece The piece to add.
      */
-    public ArrayList<PieceType> getNextPieces(int amount){
-        //If there are not enough pieces in the bag, fill the bag.
-        while(bag.size()<amount){
-            fillBag();
+    protected void addPiece(PieceType piece){
+        if(size == queue.length){
+            //Double the ring buffer, unwrapping the pieces to the start of the new buffer
+            byte[] grown = new byte[queue.length * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = queue[(head + i) & (queue.length - 1)];
+            }
+            queue = grown;
+            head = 0;
         }
-        //Iterator to iterate through the queue
-        Iterator<PieceType> it = bag.iterator();
+        queue[(head + size) & (queue.length - 1)] = (byte) piece.getId();
+        size++;
+    }
 
-        //ArrayList to store the pieces returned
-        ArrayList<PieceType> pieces = new ArrayList<>();
+    /**
+     * Returns a random integer between 0 (inclusive) and bound (exclusive) from the seeded generator.
+     *
+     * @param bound The upper bound, must be positive.
+     * @return The random integer.
+     */
+    protected int nextInt(int bound){
+        //SplitMix64, see https://prng.di.unimi.it/splitmix64.c
+        state += 0x9E3779B97F4A7C15L;
+        long z = state;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) ((z >>> 1) % bound);
+    }
 
-        //Add the pieces to the arraylist
-        for (int i = 0; i < amount; i++) {
-            pieces.add(it.next());
+    /**
+     * Returns an upcoming piece without removing it. Used to show the user the next few pieces.
+     * Any number of pieces can be looked ahead.
+     *
+     * @param index The position in the queue, 0 is the next piece to spawn.
+     * @return The piece at that position.
+     */
+    public PieceType peek(int index){
+        //If there are not enough pieces in the bag, fill the bag.
+        while(size <= index){
+            fillBag();
         }
-        return pieces; //Return the arraylist
+        return PieceType.fromId(queue[(head + index) & (queue.length - 1)]);
     }
 
     /**
@@ -67,11 +110,69 @@ public abstract class Randomizer {
      * @return The next piece in the bag.
      */
     public PieceType popNextPiece(){
-        // If there are not enough pieces in the bag, fill the bag.
-        if(bag.isEmpty()){
-            fillBag();
+        PieceType piece = peek(0); // Fills the bag if it is empty
+        head = (head + 1) & (queue.length - 1);
+        size--;
+        return piece; // Return the next piece in the bag.
+    }
+
+    //Return the seed the randomizer was created with
+    public long getSeed(){
+        return seed;
+    }
+
+    /**
+     * Copies the upcoming pieces into an array, used to take a snapshot of the randomizer.
+     *
+     * @param out The array to copy the piece ids to, must have room for getQueueSize() pieces.
+     * @return The number of pieces copied.
+     */
+    public int copyQueue(byte[] out){
+        for(int i = 0; i < size; i++){
+            out[i] = queue[(head + i) & (queue.length - 1)];
+        }
+        return size;
+    }
+
+    //Return the number of upcoming pieces stored in the queue
+    public int getQueueSize(){
+        return size;
+    }
+
+    //Return the state of the random number generator
+    public long getGeneratorState(){
+        return state;
+    }
+
+    /**
+     * Copies any state of the bag that is kept between refills into an array. Nothing by default.
+     *
+     * @param out The array to copy to, at least 8 long.
+     * @return The number of bytes copied.
+     */
+    public int copyBag(byte[] out){
+        return 0;
+    }
+
+    /**
+     * Restores a snapshot of the randomizer. Nothing is created unless the queue has to grow.
+     *
+     * @param generatorState The state of the random number generator.
+     * @param pieces The ids of the upcoming pieces.
+     * @param pieceCount The number of upcoming pieces.
+     * @param bag The state of the bag, from copyBag.
+     * @param bagSize The number of bytes of the state of the bag.
+     */
+    public void restoreState(long generatorState, byte[] pieces, int pieceCount, byte[] bag, int bagSize){
+        state = generatorState;
+        head = 0;
+        size = 0;
+        for(int i = 0; i < pieceCount; i++){
+            addPiece(PieceType.fromId(pieces[i]));
         }
-        return bag.remove(); // Remove and return the next piece in the bag.
+        restoreBag(bag, bagSize);
     }
 
+    //Restores the state of the bag copied by copyBag. Nothing by default.
+    protected void restoreBag(byte[] bag, int bagSize){}
 }
@@ -4,14 +4,49 @@
  */
 package tetris.game.randomizer;
 
-import java.util.Collections;
-
 public class RandomizerSevenBag extends Randomizer{
+    //Ids of the 7 pieces, shuffled in place every time the bag is filled
+    private final int[] bag;
+
+    //Constructor for a 7-bag randomizer with a random seed
+    public RandomizerSevenBag(){
+        super();
+        bag = new int[]{0, 1, 2, 3, 4, 5, 6};
+    }
 
-    //Shuffle all 7 pieces and add them to the bag.
+    //Constructor for a 7-bag randomizer with the given seed
+    public RandomizerSevenBag(long seed){
+        super(seed);
+        bag = new int[]{0, 1, 2, 3, 4, 5, 6};
+    }
+
+    //Shuffle all 7 pieces (Fisher-Yates) and add them to the bag.
     @Override
     protected void fillBag() {
-        Collections.shuffle(allPieces);
-        bag.addAll(allPieces);
+        for (int i = bag.length - 1; i > 0; i--) {
+            int j = nextInt(i + 1);
+            int temp = bag[i];
+            bag[i] = bag[j];
+            bag[j] = temp;
+        }
+        for (int piece : bag) {
+            addPiece(ALL_PIECES[piece]);
+        }
+    }
+
+    //The order of the bag is shuffled again on every refill, so it is part of the state
+    @Override
+    public int copyBag(byte[] out) {
+        for (int i = 0; i < bag.length; i++) {
+            out[i] = (byte) bag[i];
+        }
+        return bag.length;
+    }
+
+    @Override
+    protected void restoreBag(byte[] bag, int bagSize) {
+        for (int i = 0; i < bagSize; i++) {
+            this.bag[i] = bag[i];
+        }
     }
 }
@@ -53,12 +53,12 @@ public class GuiGameMode extends Gui {
             //It must be added to the x coordinate of relevant components
 
             //Draw the top rectangle
-            g.setColor(gameMode.getBackgroundColor());
+            g.setColor(getBackgroundColor(gameMode));
             g.fillRect(offsetX + 300, 160, 1400, 280);
 
             //Draw the Game Mode name
             g.setFont(Assets.Fonts.KDAM_FONT.get().deriveFont(Font.BOLD, 50));
-            g.setColor(gameMode.getTextColor());
+            g.setColor(getTextColor(gameMode));
             g.drawString(gameMode.getName(), offsetX + 320, 230);
 
             //Draw the game mode description
@@ -66,7 +66,7 @@ public class GuiGameMode extends Gui {
             g.drawString(gameMode.getDescription(), offsetX + 320, 270);
 
             //Draw a second rectangle below the first rectangle to store the start button
-            g.setColor(gameMode.getBackgroundColor());
+            g.setColor(getBackgroundColor(gameMode));
             g.fillRect(offsetX + 300, 460, 1400, 105);
         }, AnimationType.RIGHT));
 
@@ -90,4 +90,28 @@ public class GuiGameMode extends Gui {
         }, AnimationType.RIGHT));
 
     }
+
+    //Returns the text color of a game mode
+    private static Color getTextColor(GameMode gameMode){
+        switch (gameMode){
+            case FORTY_LINES:
+                return new Color(233, 181, 142);
+            case BLITZ:
+                return new Color(219, 161, 161);
+            default:
+                return null;
+        }
+    }
+
+    //Returns the background color of a game mode
+    private static Color getBackgroundColor(GameMode gameMode){
+        switch (gameMode){
+            case FORTY_LINES:
+                return new Color(82, 61, 45);
+            case BLITZ:
+                return new Color(62, 36, 36);
+            default:
+                return null;
+        }
+    }
 }
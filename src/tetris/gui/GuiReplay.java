@@ -0,0 +1,123 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Shows a replay of a recorded game.
+ *
+ * Controls: space pauses, up and down change the speed, left and right jump 5 seconds back or forward and escape goes
+ * back to the main menu.
+ */
+package tetris.gui;
+
+import tetris.GamePanel;
+import tetris.controls.KeyboardInput;
+import tetris.replay.Replay;
+import tetris.replay.ReplayPlayer;
+import tetris.util.Assets;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+
+public class GuiReplay extends Gui {
+    //Fastest speed the replay can be played at
+    private static final int MAX_SPEED = 64;
+
+    //Number of seconds jumped by the left and right keys
+    private static final int SEEK_SECONDS = 5;
+
+    // Plays the replay
+    private final ReplayPlayer player;
+
+    // Draws the game of the replay
+    private final Tetris tetris;
+
+    // Number of ticks simulated every physics update
+    private int speed;
+
+    // Is the replay paused?
+    private boolean paused;
+
+    private final KeyboardInput keyboardInput;
+
+    // Keys that were held in the last update, so holding a key only does its action once
+    private boolean held_pause, held_faster, held_slower, held_back, held_forward;
+
+    // Font of the replay information, created once
+    private final Font font;
+
+    public GuiReplay(Replay replay, int speed) {
+        super();
+        this.keyboardInput = instance.keyboardInput;
+        this.player = new ReplayPlayer(replay);
+        this.tetris = new Tetris(player.getEngine());
+        this.speed = Math.max(1, Math.min(MAX_SPEED, speed));
+        this.font = Assets.Fonts.KDAM_FONT.get().deriveFont(Font.BOLD, 40);
+
+        instance.getGameBackground().randomBackground();
+        this.backgroundOpacity = 0.5f;
+    }
+
+    @Override
+    public void draw(Graphics2D g) {
+        super.draw(g);
+
+        //Draw tetris board
+        g.drawImage(tetris.drawImage(), GamePanel.INTERNAL_WIDTH / 2 - Tetris.BOARD_WIDTH / 2, GamePanel.INTERNAL_HEIGHT / 2 - Tetris.BOARD_HEIGHT / 2, Tetris.BOARD_WIDTH, Tetris.BOARD_HEIGHT, null);
+
+        //Draw the replay information on the bottom of the screen
+        Replay replay = player.getReplay();
+        String text = String.format("REPLAY  %s  %s / %s", paused ? "PAUSED" : speed + "x",
+                formatTicks(player.getTick() - replay.startTick + 1), formatTicks(replay.getLength()));
+        g.setFont(font);
+        g.setColor(Color.WHITE);
+        FontMetrics fm = g.getFontMetrics();
+        g.drawString(text, GamePanel.INTERNAL_WIDTH / 2 - fm.stringWidth(text) / 2, GamePanel.INTERNAL_HEIGHT - 40);
+    }
+
+    // Formats a number of ticks as minutes, seconds and tenths of a second
+    private String formatTicks(long ticks) {
+        long tenths = Math.max(0, ticks) * 10 / player.getReplay().ticksPerSecond;
+        return String.format("%d:%02d.%d", tenths / 600, tenths / 10 % 60, tenths % 10);
+    }
+
+    @Override
+    public void update() {
+        handleKeyboard();
+        if (!paused) {
+            for (int i = 0; i < speed; i++) {
+                player.step();
+            }
+        }
+        tetris.publishSnapshot(); // Seeking can change the game even when paused
+    }
+
+    //Handles keyboard input
+    private void handleKeyboard() {
+        if (keyboardInput.isKeyPressed(KeyEvent.VK_ESCAPE)) {
+            instance.displayGui(new GuiMenuTransition(this, new GuiMainMenu()));
+        }
+        if (keyboardInput.isKeyPressed(KeyEvent.VK_SPACE) && !held_pause) {
+            paused = !paused;
+        }
+        if (keyboardInput.isKeyPressed(KeyEvent.VK_UP) && !held_faster) {
+            speed = Math.min(MAX_SPEED, speed * 2);
+        }
+        if (keyboardInput.isKeyPressed(KeyEvent.VK_DOWN) && !held_slower) {
+            speed = Math.max(1, speed / 2);
+        }
+
+        // Seeking restores the closest keyframe, so it is instant even far into the replay
+        int seekTicks = SEEK_SECONDS * player.getReplay().ticksPerSecond;
+        if (keyboardInput.isKeyPressed(KeyEvent.VK_LEFT) && !held_back) {
+            player.seek(player.getTick() - seekTicks);
+        }
+        if (keyboardInput.isKeyPressed(KeyEvent.VK_RIGHT) && !held_forward) {
+            player.seek(player.getTick() + seekTicks);
+        }
+
+        held_pause = keyboardInput.isKeyPressed(KeyEvent.VK_SPACE);
+        held_faster = keyboardInput.isKeyPressed(KeyEvent.VK_UP);
+        held_slower = keyboardInput.isKeyPressed(KeyEvent.VK_DOWN);
+        held_back = keyboardInput.isKeyPressed(KeyEvent.VK_LEFT);
+        held_forward = keyboardInput.isKeyPressed(KeyEvent.VK_RIGHT);
+    }
+}
@@ -7,11 +7,14 @@
 package tetris.gui;
 
 import tetris.GamePanel;
+import tetris.controls.KeyEventQueue;
 import tetris.controls.KeyboardInput;
 import tetris.game.GameMode;
-import tetris.game.Tetris;
+import tetris.game.PlayerController;
+import tetris.replay.ReplayRecorder;
 import tetris.util.Assets;
 import tetris.util.FrameTimer;
+import tetris.util.TickClock;
 import tetris.util.Util;
 
 import java.awt.*;
@@ -20,6 +23,9 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 
 public class GuiTetris extends Gui {
+    // Clock that moves forward once every physics update. All the game and animation timers are measured with it
+    private final TickClock clock;
+
     // Timer for the black that fades out
     private FrameTimer blackfadeOutTimer;
 
@@ -44,6 +50,8 @@ public class GuiTetris extends Gui {
     // y offset and y velocity of the tetris board (used for animation)
     private int yOffset;
     private int yVelocity;
+    // y offset before the last update, to draw the board moving smoothly between updates
+    private int lastYOffset;
 
     //Timer for when the player has died (for animation)
     private FrameTimer diedTimer;
@@ -57,24 +65,14 @@ public class GuiTetris extends Gui {
     private Image[] countDownImages;
     private File[] countDownSounds;
 
-    //Boolean to check if key was pressed in the last frame to prevent multiple key presses
-    private boolean held_hardDrop;
-    private boolean held_rotateCW;
-    private boolean held_rotateCCW;
-    private boolean held_holdPiece;
-
-    // Delay between auto-repeat soft drop
-    private FrameTimer softDropTimer;
+    // Turns the held keys into moves of the game
+    private final PlayerController controller;
 
-    // The initial long delay when moving left
-    private FrameTimer moveLeftTimerDAS;
-    // The shorter delay when moving left after init DAS delay has passed
-    private FrameTimer moveLeftTimer;
+    // Has the game started? Set on its first physics update
+    private boolean gameStarted;
 
-    // The initial long delay when moving right
-    private FrameTimer moveRightTimerDAS;
-    // The shorter delay when moving right after init DAS delay has passed
-    private FrameTimer moveRightTimer;
+    // Records the inputs of the game, created when the game starts if replays are recorded (null otherwise)
+    private ReplayRecorder recorder;
 
     // Length of animation when piece is hard dropped
     private FrameTimer hardDropAnimationTimer;
@@ -82,6 +80,18 @@ public class GuiTetris extends Gui {
 
     private KeyboardInput keyboardInput;
 
+    // Every press and release of a key, read once per physics update so that no tap is lost
+    private final KeyEventQueue keyEvents;
+
+    // Game actions whose keys are held, as of the last event read from the queue
+    private int heldActions;
+
+    // Number of events the queue had dropped when the game last caught up with it
+    private long droppedEvents;
+
+    // Linux sends a release and a press when a held key auto-repeats, at most this far apart. Such pairs are skipped
+    private static final long AUTO_REPEAT_NANOS = 1000000;
+
     // All keybinds
     public int moveRightKey = KeyEvent.VK_RIGHT;
     public int moveLeftKey = KeyEvent.VK_LEFT;
@@ -99,12 +109,14 @@ public class GuiTetris extends Gui {
     public GuiTetris(GameMode gameMode) {
         super();
         this.keyboardInput = instance.keyboardInput;
+        this.keyEvents = keyboardInput.getEvents();
+        this.clock = new TickClock(instance.getPhysicsFPS());
 
         this.gameMode = gameMode;
-        gameBanner = gameMode.getBanner();
+        gameBanner = getBanner(gameMode);
 
         // this object handles all game logic; only tetris.drawImage() and tetris.update() will cause objects inside game board to change.
-        tetris = new Tetris(gameMode);
+        tetris = new Tetris(gameMode, clock);
 
         //Change background and set opacity to be .5
         instance.getGameBackground().randomBackground();
@@ -114,29 +126,29 @@ public class GuiTetris extends Gui {
         //The below timers are used before the game starts
         //If timers are disabled, it means that they will be enabled later and haven't started yet
 
-        blackfadeOutTimer = new FrameTimer(1);
+        blackfadeOutTimer = new FrameTimer(1, clock);
 
-        bannerTimer = new FrameTimer(5);
+        bannerTimer = new FrameTimer(5, clock);
         bannerTimer.disable();
 
-        countdownTimer = new FrameTimer(3.3);
+        countdownTimer = new FrameTimer(3.3, clock);
         countdownTimer.disable();
 
-        goTimer = new FrameTimer(1);
+        goTimer = new FrameTimer(1, clock);
         goTimer.disable();
 
         //=========================================================
 
         //Timer for after the player has died (so the game falls down)
-        diedTimer = new FrameTimer(1);
+        diedTimer = new FrameTimer(1, clock);
         diedTimer.disable();
 
         //Timer for when the player wants to resign
-        resignTimer = new FrameTimer(1.5);
+        resignTimer = new FrameTimer(1.5, clock);
         resignTimer.disable();
 
         //Timer for when the player wants to restart
-        restartTimer = new FrameTimer(1.5);
+        restartTimer = new FrameTimer(1.5, clock);
         restartTimer.disable();
 
         // Initialize the countdown variables
@@ -146,26 +158,25 @@ public class GuiTetris extends Gui {
         countDownImages = new Image[]{Assets.Game.COUNTDOWN_1.get(), Assets.Game.COUNTDOWN_2.get(), Assets.Game.COUNTDOWN_3.get()};
         countDownSounds = new File[]{Assets.SFX.COUNTDOWN_1.get(), Assets.SFX.COUNTDOWN_2.get(), Assets.SFX.COUNTDOWN_3.get()};
 
-        //Initialize the timers for keybinds
-        softDropTimer = new FrameTimer(0.06);
-        moveLeftTimerDAS = new FrameTimer(0.167);
-        moveLeftTimer = new FrameTimer(0.033);
-        hardDropAnimationTimer = new FrameTimer(0.1);
-        moveRightTimerDAS = new FrameTimer(0.167);
-        moveRightTimer = new FrameTimer(0.033);
+        //Initialize the keybind handling and the hard drop animation
+        controller = new PlayerController(tetris.getEngine());
+        hardDropAnimationTimer = new FrameTimer(0.1, clock);
     }
 
     @Override
     public void draw(Graphics2D g) {
         super.draw(g);
 
-        if (tetris.isDied()) { // This takes precedence over anything else since we need to transition to another screen if player is dead
+        // Everything about the game is drawn from one snapshot, so the frame shows a single physics update
+        RenderSnapshot snapshot = tetris.getSnapshot();
+
+        if (snapshot.isDied()) { // This takes precedence over anything else since we need to transition to another screen if player is dead
             // diedTimer is used to hold things in place while dying animation plays
             if (diedTimer.isDisabled()) {
                 diedTimer.reset();
             }
 
-            BufferedImage board = (BufferedImage) tetris.drawImage(); // Board image
+            BufferedImage board = (BufferedImage) tetris.drawImage(snapshot, 1); // Board image
 
             g.rotate(Math.toRadians(20) * diedTimer.getProgress()); // Death animation is rotating the board
 
@@ -174,8 +185,10 @@ public class GuiTetris extends Gui {
                 instance.displayGui(new GuiMenuTransition(this, new GuiDied(gameMode)));
             }
         } else {
-            //Draw tetris board
-            g.drawImage(tetris.drawImage(), GamePanel.INTERNAL_WIDTH / 2 - Tetris.BOARD_WIDTH / 2, GamePanel.INTERNAL_HEIGHT / 2 - Tetris.BOARD_HEIGHT / 2 + yOffset - (int) (1400 * (1 - blackfadeOutTimer.getProgress())), Tetris.BOARD_WIDTH, Tetris.BOARD_HEIGHT, null);
+            //Draw tetris board, with the falling piece and the bounce between the last two updates
+            double interpolation = instance.getInterpolation();
+            int drawnYOffset = (int) Math.round(snapshot.getLastYOffset() + (snapshot.getYOffset() - snapshot.getLastYOffset()) * interpolation);
+            g.drawImage(tetris.drawImage(snapshot, interpolation), GamePanel.INTERNAL_WIDTH / 2 - Tetris.BOARD_WIDTH / 2, GamePanel.INTERNAL_HEIGHT / 2 - Tetris.BOARD_HEIGHT / 2 + drawnYOffset - (int) (1400 * (1 - blackfadeOutTimer.getProgress())), Tetris.BOARD_WIDTH, Tetris.BOARD_HEIGHT, null);
 
             //The following below are the intro animations in order. Timer keeps them from all playing at once.
             if (!blackfadeOutTimer.isDone()) {
@@ -334,8 +347,20 @@ public class GuiTetris extends Gui {
     //Update method for handling keyboard, tetris updates, and timers
     @Override
     public void update() { // This is called every time game physics needs to update
+        updateGame();
+        tetris.publishSnapshot(yOffset, lastYOffset); // Whatever happened in this update can now be drawn
+        instance.latencyStats.updatePublished(System.nanoTime()); // Paints from now on show the inputs of this update
+    }
+
+    //Runs one physics update of the game, the intro animations and the board bounce
+    private void updateGame() {
         super.update();
+        clock.tick(); // One physics update has passed
+        if (!gameStarted) { // Key events before the game starts don't matter; the held keys are read when it starts
+            keyEvents.clear();
+        }
         if (tetris.isObjectiveCompleted()) { // If game completion requirements are fulfilled, immediately move to the results screen.
+            finishRecording();
             instance.displayGui(new GuiMenuTransition(this, new GuiResults(gameMode, tetris.getFinalScore())));
         }
 
@@ -372,11 +397,25 @@ public class GuiTetris extends Gui {
             }
         }
 
+        if (!gameStarted) { // The game starts on this update, so start recording its inputs
+            gameStarted = true;
+            if (instance.isRecordingReplays()) {
+                recorder = new ReplayRecorder(ReplayRecorder.newReplayFile(gameMode), gameMode,
+                        tetris.getEngine().getSeed(), clock.getTicksPerSecond(), clock.getTicks());
+            }
+            syncHeldActions();
+        }
+
         tetris.update(); // This updates the tetris game physics.
 
         handleKeyboard(); // Get keyboard input
 
+        if (tetris.isDied()) { // The game is over, so the replay can be saved
+            finishRecording();
+        }
+
         // makes game board animate based on current velocity, prevent it from going too far
+        lastYOffset = yOffset;
         yOffset += yVelocity;
 
         //If it has gone beyond the limit
@@ -399,6 +438,20 @@ public class GuiTetris extends Gui {
 
     //Handles keyboard input
     private void handleKeyboard() {
+        // The game keys that are held, as a bitmask of actions
+        int actions = readKeyEvents();
+
+        int pressed = controller.update(actions);
+        if (recorder != null) {
+            recorder.record(clock.getTicks(), actions);
+        }
+
+        //An animation will be played if the piece is hard dropped.
+        if ((pressed & PlayerController.HARD_DROP) != 0) {
+            hardDropAnimationTimer.reset();
+        }
+
+        // Resigning and restarting are handled after the game keys, so the replay ends with every input of its last tick
         // This timer only stores how long escape was pressed, resetting when it is pressed and disabling when it is released.
         // The game will only accept the resignation if it is pressed continuously for some time.
         // This ensures that an errant press of the escape key does not cause an accidental resign.
@@ -407,6 +460,7 @@ public class GuiTetris extends Gui {
         } else if (!keyboardInput.isKeyPressed(resignKey)) {
             resignTimer.disable();
         } else if (resignTimer.isDone()) { // Resignation takes the player back to the main menu.
+            finishRecording();
             instance.displayGui(new GuiMenuTransition(this, new GuiMainMenu()));
         }
 
@@ -415,70 +469,109 @@ public class GuiTetris extends Gui {
         } else if (!keyboardInput.isKeyPressed(restartKey)) {
             restartTimer.disable();
         } else if (restartTimer.isDone()) {
+            finishRecording();
             instance.displayGui(new GuiTetris(gameMode));
         }
+    }
 
-        // "soft dropping" is rate limited to prevent a short press from bringing the piece all the way down
-        if (softDropTimer.isDone() && keyboardInput.isKeyPressed(softDropKey)) {
-            softDropTimer.reset();
-            tetris.dropPiece();
-        }
-        // "hard dropping" is disabled if the space bar is held to prevent multiple pieces from being hard dropped
-        //An animation will be played if the piece is hard dropped.
-        if (keyboardInput.isKeyPressed(hardDropKey) && !held_hardDrop) {
-            tetris.hardDrop();
-            hardDropAnimationTimer.reset();
+    /*
+     * Reads the key events that arrived since the last physics update and returns the actions to give the controller.
+     *
+     * The controller only sees one mask per update, so an action is pressed at most once per update:
+     *  - A key pressed and released in the same update still counts as held for that update, so the tap is not lost.
+     *  - A press of an action that was in the last mask must wait for the next update, as this update has to be the
+     *    one where it is not held, or the controller would not see the new press. The events after it wait too, so
+     *    they stay in order.
+     * Events that wait stay in the queue, so every edge reaches the controller in the order it happened.
+     */
+    private int readKeyEvents() {
+        if (keyEvents.getDropped() != droppedEvents) { // The queue was full, so start over from the keys held now
+            syncHeldActions();
+            return heldActions;
         }
 
-        // moving left and right is controlled by https://tetris.fandom.com/wiki/DAS to avoid operating system quirks
-        // In the website, you can see that the initial delay is longer than the subsequent delays.
-        // When move is called, set timers to prevent a hold key from dragging piece across the board
-        if (keyboardInput.isKeyPressed(moveLeftKey)) {
-            if (moveLeftTimerDAS.isDisabled()) { //Longer initial timer
-                tetris.moveLeft();
-                moveLeftTimerDAS.reset();
-                moveLeftTimer.reset();
-            } else if (moveLeftTimerDAS.isDone() && moveLeftTimer.isDone()) { //Shorter DAS timer
-                tetris.moveLeft();
-                moveLeftTimer.reset();
+        long now = System.nanoTime(); // Time of this update, to measure input latency
+        int lastActions = controller.getHeld();
+        int pressedNow = 0; // Actions pressed during this update
+        int tapped = 0; // Actions pressed and released during this update
+        int size = keyEvents.size();
+        int read = 0;
+        for (; read < size; read++) {
+            int keyCode = keyEvents.getKeyCode(read);
+            int action = actionOf(keyCode);
+            if (action == 0) { // Not a game key
+                continue;
             }
-        } else {
-            // The key isn't held anymore, so the initial long delay applies again next time the key is pressed
-            moveLeftTimerDAS.disable();
-        }
-
-        if (keyboardInput.isKeyPressed(moveRightKey)) { // When move is called, set timers to prevent a hold key from dragging piece across the board
-            if (moveRightTimerDAS.isDisabled()) { //Longer initial timer
-                tetris.moveRight();
-                moveRightTimerDAS.reset();
-                moveRightTimer.reset();
-            } else if (moveRightTimerDAS.isDone() && moveRightTimer.isDone()) { //Shorter DAS timer
-                tetris.moveRight();
-                moveRightTimer.reset();
+            if (keyEvents.isPressed(read)) {
+                if ((heldActions & action) != 0) { // Already held, it was counted when the held keys were read
+                    continue;
+                }
+                if (((lastActions | pressedNow) & action) != 0) { // The controller needs an update without it first
+                    break;
+                }
+                heldActions |= action;
+                pressedNow |= action;
+                instance.latencyStats.inputApplied(Integer.numberOfTrailingZeros(action), keyEvents.getTime(read), now);
+            } else {
+                // A release directly followed by a press of the same key is the OS auto-repeating a held key
+                if (read + 1 < size && keyEvents.getKeyCode(read + 1) == keyCode && keyEvents.isPressed(read + 1)
+                        && keyEvents.getTime(read + 1) - keyEvents.getTime(read) < AUTO_REPEAT_NANOS) {
+                    read++;
+                    continue;
+                }
+                heldActions &= ~action;
+                if ((pressedNow & action) != 0) {
+                    tapped |= action;
+                }
             }
-        } else {
-            // The key isn't held anymore, so the initial long delay applies again next time the key is pressed
-            moveRightTimerDAS.disable();
         }
+        keyEvents.remove(read);
+        return heldActions | tapped;
+    }
 
-        //Once a rotation has occurred, the person must lift the key to rotate again.
-        //Done in if else to avoid conflicts with both keys being pressed at the same time.
-        if (keyboardInput.isKeyPressed(rotateCWKey) && !held_rotateCW) {
-            tetris.rotateCW();
-        } else if (keyboardInput.isKeyPressed(rotateCCWKey) && !held_rotateCCW) {
-            tetris.rotateCCW();
-        }
+    // Throws away the waiting key events and reads which game keys are held now
+    private void syncHeldActions() {
+        keyEvents.clear();
+        droppedEvents = keyEvents.getDropped();
+        heldActions = 0;
+        if (keyboardInput.isKeyPressed(moveLeftKey)) heldActions |= PlayerController.LEFT;
+        if (keyboardInput.isKeyPressed(moveRightKey)) heldActions |= PlayerController.RIGHT;
+        if (keyboardInput.isKeyPressed(softDropKey)) heldActions |= PlayerController.SOFT_DROP;
+        if (keyboardInput.isKeyPressed(hardDropKey)) heldActions |= PlayerController.HARD_DROP;
+        if (keyboardInput.isKeyPressed(rotateCWKey)) heldActions |= PlayerController.ROTATE_CW;
+        if (keyboardInput.isKeyPressed(rotateCCWKey)) heldActions |= PlayerController.ROTATE_CCW;
+        if (keyboardInput.isKeyPressed(holdKey)) heldActions |= PlayerController.HOLD;
+    }
+
+    // Returns the action bound to a key, 0 if it isn't a game key
+    private int actionOf(int keyCode) {
+        if (keyCode == moveLeftKey) return PlayerController.LEFT;
+        if (keyCode == moveRightKey) return PlayerController.RIGHT;
+        if (keyCode == softDropKey) return PlayerController.SOFT_DROP;
+        if (keyCode == hardDropKey) return PlayerController.HARD_DROP;
+        if (keyCode == rotateCWKey) return PlayerController.ROTATE_CW;
+        if (keyCode == rotateCCWKey) return PlayerController.ROTATE_CCW;
+        if (keyCode == holdKey) return PlayerController.HOLD;
+        return 0;
+    }
 
-        //Prevent repeating the same key press.
-        if (keyboardInput.isKeyPressed(holdKey) && !held_holdPiece) {
-            tetris.holdPiece();
+    // Saves the replay of the game, if it is being recorded
+    private void finishRecording() {
+        if (recorder != null) {
+            recorder.finish(clock.getTicks());
         }
+    }
 
-        // Set the held keys to true so that the key functions is not called again until the key is released.
-        held_hardDrop = keyboardInput.isKeyPressed(hardDropKey);
-        held_rotateCW = keyboardInput.isKeyPressed(rotateCWKey);
-        held_rotateCCW = keyboardInput.isKeyPressed(rotateCCWKey);
-        held_holdPiece = keyboardInput.isKeyPressed(holdKey);
+    // Returns the banner that is displayed when the game starts in the given game mode
+    private static Image getBanner(GameMode gameMode) {
+        switch (gameMode) {
+            case FORTY_LINES:
+                return Assets.Game.FORTY_BANNER.get();
+            case BLITZ:
+                return Assets.Game.BLITZ_BANNER.get();
+            default:
+                return null;
+        }
     }
 
 }
@@ -0,0 +1,191 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Local versus match between two players on the same keyboard, with the boards side by side.
+ *
+ * Player 1: A and D move, S soft drops, W hard drops, E and Q rotate clockwise and counterclockwise, F holds.
+ * Player 2: the arrow keys move and soft drop, enter hard drops, up and slash rotate clockwise and counterclockwise,
+ * period holds.
+ * Escape goes back to the main menu.
+ */
+package tetris.gui;
+
+import tetris.GamePanel;
+import tetris.controls.KeyboardInput;
+import tetris.game.VersusMatch;
+import tetris.util.Assets;
+import tetris.util.FrameTimer;
+import tetris.util.TickClock;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.io.File;
+
+public class GuiVersus extends Gui {
+    //Keys of every player, in the order of the bits of the PlayerController action mask:
+    //left, right, soft drop, hard drop, rotate clockwise, rotate counterclockwise, hold
+    public static final int[][] KEYS = {
+            {KeyEvent.VK_A, KeyEvent.VK_D, KeyEvent.VK_S, KeyEvent.VK_W, KeyEvent.VK_E, KeyEvent.VK_Q, KeyEvent.VK_F},
+            {KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_DOWN, KeyEvent.VK_ENTER, KeyEvent.VK_UP, KeyEvent.VK_SLASH, KeyEvent.VK_PERIOD}
+    };
+
+    //Space between the boards
+    private static final int BOARD_SPACING = 40;
+
+    //Color that the boards of players that topped out are darkened with
+    private static final Color DEAD_OVERLAY = new Color(0, 0, 0, 150);
+
+    // The match, which updates every game
+    private final VersusMatch match;
+
+    // Draws the game of every player
+    private final Tetris[] boards;
+
+    // Actions held by every player in this update, reused every update
+    private final int[] actions;
+
+    // Clock of the animations around the match. The match has its own clock, which only starts after the countdown
+    private final TickClock clock;
+
+    // Timer for the 3 2 1 countdown before the match starts
+    private final FrameTimer countdownTimer;
+
+    // Timer for how long the winner is shown before going back to the main menu
+    private final FrameTimer resultTimer;
+
+    // Booleans to check whether number has been played in countdown
+    private final boolean[] hasPlayedCountdown;
+    private final Image[] countDownImages;
+    private final File[] countDownSounds;
+
+    // Has the match started?
+    private boolean started;
+
+    // Font of the result text, created once
+    private final Font font;
+
+    private final KeyboardInput keyboardInput;
+
+    public GuiVersus() {
+        super();
+        this.keyboardInput = instance.keyboardInput;
+        this.clock = new TickClock(instance.getPhysicsFPS());
+
+        //Every player gets the same pieces
+        this.match = new VersusMatch(KEYS.length, instance.getPhysicsFPS(), System.nanoTime());
+        this.boards = new Tetris[match.getPlayerCount()];
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new Tetris(match.getPlayer(i));
+        }
+        this.actions = new int[match.getPlayerCount()];
+
+        countdownTimer = new FrameTimer(3, clock);
+        resultTimer = new FrameTimer(4, clock);
+        resultTimer.disable();
+
+        hasPlayedCountdown = new boolean[3];
+        countDownImages = new Image[]{Assets.Game.COUNTDOWN_1.get(), Assets.Game.COUNTDOWN_2.get(), Assets.Game.COUNTDOWN_3.get()};
+        countDownSounds = new File[]{Assets.SFX.COUNTDOWN_1.get(), Assets.SFX.COUNTDOWN_2.get(), Assets.SFX.COUNTDOWN_3.get()};
+        font = Assets.Fonts.KDAM_FONT.get().deriveFont(Font.BOLD, 80);
+
+        instance.getGameBackground().randomBackground();
+        this.backgroundOpacity = 0.5f;
+        musicPlayer.stopMusic();
+    }
+
+    @Override
+    public void draw(Graphics2D g) {
+        super.draw(g);
+
+        //Boards are scaled down if they don't all fit next to each other
+        int count = boards.length;
+        int width = Math.min(Tetris.BOARD_WIDTH, (GamePanel.INTERNAL_WIDTH - BOARD_SPACING * (count - 1)) / count);
+        int height = Tetris.BOARD_HEIGHT * width / Tetris.BOARD_WIDTH;
+        int left = GamePanel.INTERNAL_WIDTH / 2 - (width * count + BOARD_SPACING * (count - 1)) / 2;
+        int top = GamePanel.INTERNAL_HEIGHT / 2 - height / 2;
+
+        for (int i = 0; i < count; i++) {
+            int x = left + i * (width + BOARD_SPACING);
+            RenderSnapshot snapshot = boards[i].getSnapshot();
+            g.drawImage(boards[i].drawImage(snapshot, 1), x, top, width, height, null);
+
+            //Players that topped out are darkened
+            if (snapshot.isDied()) {
+                g.setColor(DEAD_OVERLAY);
+                g.fillRect(x, top, width, height);
+            }
+        }
+
+        if (!countdownTimer.isDone()) {
+            drawCountDown(g);
+        } else if (match.isOver()) {
+            drawResult(g);
+        }
+    }
+
+    //Draws the number of seconds left before the match starts
+    private void drawCountDown(Graphics2D g) {
+        int second = Math.min(2, (int) (countdownTimer.timeElapsed() / 1000000000L)); //0, 1 or 2 seconds have passed
+        int index = 2 - second; //Image of the number of seconds left
+        if (!hasPlayedCountdown[index]) {
+            sfxPlayer.play(countDownSounds[index]);
+            hasPlayedCountdown[index] = true;
+        }
+        Image countDown = countDownImages[index];
+        g.drawImage(countDown, GamePanel.INTERNAL_WIDTH / 2 - countDown.getWidth(null) / 2, GamePanel.INTERNAL_HEIGHT / 2 - countDown.getHeight(null) / 2, null);
+    }
+
+    //Draws who won the match
+    private void drawResult(Graphics2D g) {
+        int winner = match.getWinner();
+        String text = winner == -1 ? "DRAW" : "PLAYER " + (winner + 1) + " WINS";
+        g.setFont(font);
+        g.setColor(Color.WHITE);
+        FontMetrics fm = g.getFontMetrics();
+        g.drawString(text, GamePanel.INTERNAL_WIDTH / 2 - fm.stringWidth(text) / 2, GamePanel.INTERNAL_HEIGHT / 2);
+    }
+
+    @Override
+    public void update() {
+        clock.tick();
+        if (keyboardInput.isKeyPressed(KeyEvent.VK_ESCAPE)) {
+            musicPlayer.stopMusic();
+            instance.displayGui(new GuiMenuTransition(this, new GuiMainMenu()));
+            return;
+        }
+        if (!countdownTimer.isDone()) { //The match hasn't started yet
+            return;
+        }
+        if (!started) { //The countdown has just finished
+            started = true;
+            sfxPlayer.play(Assets.SFX.GO.get());
+            musicPlayer.play(Assets.Music.VREMYA.get());
+            musicPlayer.setLoop(true);
+        }
+
+        if (match.isOver()) {
+            //Show the winner for a while, then go back to the main menu
+            if (resultTimer.isDisabled()) {
+                resultTimer.reset();
+                musicPlayer.stopMusic();
+            } else if (resultTimer.isDone()) {
+                instance.displayGui(new GuiMenuTransition(this, new GuiMainMenu()));
+            }
+            return;
+        }
+
+        //Build the action mask of every player from their keys
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = 0;
+            for (int j = 0; j < KEYS[i].length; j++) {
+                if (keyboardInput.isKeyPressed(KEYS[i][j])) {
+                    actions[i] |= 1 << j;
+                }
+            }
+        }
+        match.update(actions);
+        for (Tetris board : boards) { // The updates of every player can now be drawn
+            board.publishSnapshot();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Everything needed to draw a tetris game at one physics update: the board, the pieces, the sidebar and the bounce of
+ * the board.
+ *
+ * Physics runs on the game thread while painting can run on the Swing thread (when active rendering is unavailable,
+ * see GamePanel). Instead of painting from the engine while it changes, the game thread copies the state into a
+ * snapshot after every update and publishes it through a TripleBuffer (see Tetris.publishSnapshot), and the painting
+ * only reads snapshots. A published snapshot is never changed while it can be read, so a frame never shows a half
+ * updated game. Snapshots are reused, so publishing one doesn't allocate.
+ */
+package tetris.gui;
+
+import tetris.game.Board;
+import tetris.game.GameMode;
+import tetris.game.Piece;
+import tetris.game.PieceType;
+import tetris.game.TetrisEngine;
+
+public class RenderSnapshot {
+    //Number of next pieces shown
+    public static final int NEXT_PIECES = 5;
+
+    //Copy of the board, and the version of the board it was copied from (see Board.getVersion)
+    final Board board = new Board();
+    int boardVersion;
+
+    //The current piece, the row it was at before the update if it fell exactly one row (else its row), and its ghost
+    PieceType pieceType;
+    int pieceRotation, pieceX, pieceY;
+    int fromY;
+    int ghostY;
+    boolean onGround;
+
+    //The held piece (null if none), and if it can be switched
+    PieceType holdType;
+    boolean canSwitchHold;
+
+    //The next pieces
+    final PieceType[] next = new PieceType[NEXT_PIECES];
+
+    //Sidebar information
+    GameMode gameMode;
+    int linesCleared, lineGoal;
+    long timeElapsed;
+    boolean started;
+    int incomingGarbage;
+    long updateFrame;
+
+    //Is the game over?
+    boolean died;
+
+    //Bounce of the board before and after the update, set by the gui
+    int yOffset, lastYOffset;
+
+    // Copies the state of a game
+    void copyFrom(TetrisEngine engine) {
+        board.copyFrom(engine.board);
+        boardVersion = engine.board.getVersion();
+
+        Piece current = engine.current;
+        pieceType = current.getType();
+        pieceRotation = current.getRotation();
+        pieceX = current.getCenterX();
+        pieceY = current.getCenterY();
+        fromY = pieceY;
+        ghostY = engine.findDropHeight();
+        onGround = engine.onGround();
+
+        holdType = engine.hold == null ? null : engine.hold.getType();
+        canSwitchHold = engine.canSwitchHold;
+
+        for (int i = 0; i < NEXT_PIECES; i++) {
+            next[i] = engine.getNextPiece(i);
+        }
+
+        gameMode = engine.getGameMode();
+        linesCleared = engine.linesCleared;
+        lineGoal = engine.lineGoal;
+        timeElapsed = engine.getTimeElapsed();
+        started = engine.hasStarted();
+        incomingGarbage = engine.getIncomingGarbage();
+        updateFrame = engine.getUpdateFrame();
+        died = engine.isDied();
+    }
+
+    /**
+     * @return True if the game was over at this update
+     */
+    public boolean isDied() {
+        return died;
+    }
+
+    /**
+     * @return The bounce of the board after the update
+     */
+    public int getYOffset() {
+        return yOffset;
+    }
+
+    /**
+     * @return The bounce of the board before the update
+     */
+    public int getLastYOffset() {
+        return lastYOffset;
+    }
+}
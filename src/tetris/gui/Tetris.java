@@ -0,0 +1,559 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ * Date: June 18, 2022
+ *
+ * Class to draw a tetris game. Includes the game board graphic, the pieces, the hold and next pieces and the sidebar.
+ * It is separated from the menu system because it allows greater flexibility for animations and allows
+ * for multiple instances for a future multiplayer feature.
+ *
+ * All the game logic lives in TetrisEngine; this class is a view over an engine and forwards the player's
+ * actions to it. It only draws from RenderSnapshots that the game thread publishes after each update, never from the
+ * engine directly, so it can be drawn on another thread than the one updating the game.
+ *
+ * Drawing is done in layers. Everything that only changes when a piece locks or is held (the grid, the locked squares,
+ * the hold and next pieces and the line count) is drawn on a cached layer, which is only drawn again when one of them
+ * changes. Every frame, the cached layer is copied onto a reused frame image and only the current piece, its ghost,
+ * the garbage meter and the timer are drawn over it.
+ */
+
+package tetris.gui;
+
+import tetris.game.Board;
+import tetris.game.GameMode;
+import tetris.game.Piece;
+import tetris.game.PieceType;
+import tetris.game.TetrisEngine;
+import tetris.util.Assets;
+import tetris.util.Clock;
+import tetris.util.TripleBuffer;
+import tetris.util.Util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class Tetris extends Rectangle {
+
+    //Game width and height of the gameboard only
+    //The board spans the entire height of the screen as tetris pieces fall vertically, and allows for future tetris ghost pieces
+    // No pieces are rendered horizontally beyond the grid width
+    public final static int BOARD_WIDTH = 732;
+    public final static int BOARD_HEIGHT = 1080;
+
+    //Length of a tetris square
+    public final static int SQUARE_LENGTH = 34;
+
+    //Store the Tetris Grid Image
+    private final Image TETRIS_GRID;
+
+    //The game that is drawn
+    private final TetrisEngine engine;
+
+    //The current piece before the last update, to draw it falling smoothly between updates
+    private int lastPiecesPlaced;
+    private PieceType lastType;
+    private int lastRotation, lastX, lastY;
+
+    //Snapshots of the game, written by the game thread and read when drawing
+    private final TripleBuffer<RenderSnapshot> snapshots;
+
+    //Image that every frame is drawn on, reused for every frame
+    private final BufferedImage frameImage;
+
+    //Cached layer with the grid, the locked squares, the hold and next pieces and the line count
+    private final BufferedImage staticLayer;
+
+    //What the static layer was drawn for, so it is only drawn again when one of them changes
+    private boolean staticLayerDrawn;
+    private int layerBoardVersion;
+    private PieceType layerHold;
+    private boolean layerCanSwitchHold;
+    private final PieceType[] layerNext = new PieceType[RenderSnapshot.NEXT_PIECES];
+    private int layerLinesCleared, layerLineGoal;
+
+    //Fonts of the sidebar, derived once
+    private final Font labelFont, smallValueFont, largeValueFont;
+
+    /*
+    Draws a new tetris game board for a specific game mode
+    @param gameMode: The selected game mode
+     */
+    public Tetris(GameMode gameMode) {
+        this(new TetrisEngine(gameMode));
+    }
+
+    /*
+    Draws a new tetris game board for a specific game mode, timed with the given clock
+    @param gameMode: The selected game mode
+    @param clock: The clock used for all game timing
+     */
+    public Tetris(GameMode gameMode, Clock clock) {
+        this(new TetrisEngine(gameMode, clock));
+    }
+
+    /*
+    Draws the game board of an existing game
+    @param engine: The game to draw
+     */
+    public Tetris(TetrisEngine engine) {
+        // Initialize the game grid
+        this.TETRIS_GRID =  Assets.Game.TETRIS_GRID.get();
+
+        this.engine = engine;
+
+        this.frameImage = new BufferedImage(BOARD_WIDTH, BOARD_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        this.staticLayer = new BufferedImage(BOARD_WIDTH, BOARD_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        this.labelFont = Assets.Fonts.KDAM_FONT.get().deriveFont(Font.PLAIN, 23);
+        this.smallValueFont = Assets.Fonts.KDAM_FONT.get().deriveFont(Font.BOLD, 23);
+        this.largeValueFont = Assets.Fonts.KDAM_FONT.get().deriveFont(Font.BOLD, 40);
+
+        this.snapshots = new TripleBuffer<>(new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot());
+        publishSnapshot(); //So there is something to draw before the first update
+    }
+
+    /**
+     * Publishes a snapshot of the game to draw. Called by the game thread after every update.
+     */
+    public void publishSnapshot(){
+        publishSnapshot(0, 0);
+    }
+
+    /**
+     * Publishes a snapshot of the game to draw, with the bounce of the board. Called by the game thread after every
+     * update.
+     *
+     * @param yOffset The bounce of the board after the update
+     * @param lastYOffset The bounce of the board before the update
+     */
+    public void publishSnapshot(int yOffset, int lastYOffset){
+        RenderSnapshot snapshot = snapshots.getBack();
+        snapshot.copyFrom(engine);
+
+        //Only falling by one row is interpolated; other moves are drawn straight away
+        if (engine.getPiecesPlaced() == lastPiecesPlaced && snapshot.pieceType == lastType && snapshot.pieceRotation == lastRotation
+                && snapshot.pieceX == lastX && snapshot.pieceY == lastY + 1) {
+            snapshot.fromY = lastY;
+        }
+        lastType = null; //The piece before the update is only used once, in case the next update is skipped
+        snapshot.yOffset = yOffset;
+        snapshot.lastYOffset = lastYOffset;
+        snapshots.publish();
+    }
+
+    /**
+     * Gets the latest snapshot of the game. Called by the drawing thread, once per frame.
+     *
+     * @return The snapshot, which stays the same until the next call
+     */
+    public RenderSnapshot getSnapshot(){
+        return snapshots.acquire();
+    }
+
+    // Draws the tetris game board as it is after the last update
+    public Image drawImage(){
+        return drawImage(getSnapshot(), 1);
+    }
+
+    /**
+     * Draws the tetris game board, with the falling piece between where it was before the last update and where it is
+     * now, so that it moves smoothly when there are more frames than updates.
+     *
+     * @param s The snapshot to draw, from getSnapshot
+     * @param interpolation The fraction of the way from before the last update (0) to now (1)
+     * @return The image of the board. It is reused, so it changes on the next call
+     */
+    public Image drawImage(RenderSnapshot s, double interpolation){
+        //Only draw the static layer again if something on it changed
+        if (!staticLayerMatches(s)) {
+            drawStaticLayer(s);
+        }
+
+        Graphics2D g = frameImage.createGraphics();
+        Util.setGraphicsFlags(g); //Make the game look better on different monitors
+
+        //Replace the last frame with the static layer, including its transparent parts
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(staticLayer, 0, 0, null);
+        g.setComposite(AlphaComposite.SrcOver);
+
+        //In versus, show the garbage waiting to rise next to the grid
+        if (s.incomingGarbage > 0) {
+            drawGarbageMeter(g, s);
+        }
+
+        //If the game is not over, draw the current piece and its ghost piece
+        if(!s.died) {
+            //The ghost piece is drawn at the lowest possible height
+            //The piece is drawn between its row before the update and its row now
+            double row = s.fromY + (s.pieceY - s.fromY) * interpolation;
+            drawPiece(g, s, s.ghostY, true);
+            drawPiece(g, s, row, false);
+        }
+
+        //Draw the time passed/left
+        drawTime(g, s);
+
+        g.dispose();
+        return frameImage;
+    }
+
+    // Checks if the static layer was drawn for what is in the snapshot
+    private boolean staticLayerMatches(RenderSnapshot s){
+        if (!staticLayerDrawn || s.boardVersion != layerBoardVersion || s.holdType != layerHold || s.canSwitchHold != layerCanSwitchHold
+                || s.linesCleared != layerLinesCleared || s.lineGoal != layerLineGoal) {
+            return false;
+        }
+        for (int i = 0; i < RenderSnapshot.NEXT_PIECES; i++) {
+            if (s.next[i] != layerNext[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Draws the static layer: the grid, the locked squares, the hold and next pieces and the line count
+    private void drawStaticLayer(RenderSnapshot s){
+        Graphics2D g = staticLayer.createGraphics();
+        Util.setGraphicsFlags(g); //Make the game look better on different monitors
+
+        //Clear the last layer
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, BOARD_WIDTH, BOARD_HEIGHT);
+        g.setComposite(AlphaComposite.SrcOver);
+
+        g.drawImage(TETRIS_GRID, 0, 1080/2 - TETRIS_GRID.getHeight(null)/2, TETRIS_GRID.getWidth(null), TETRIS_GRID.getHeight(null), null);
+
+        //Draws the grid (not the current piece)
+        drawGrid(g, s);
+
+        // If there is a hold piece, draw it
+        if (s.holdType != null) {
+            drawHold(g, s);
+        }
+
+        //Draw the next few pieces in the bag
+        drawNext(g, s);
+
+        //Draw the lines cleared
+        drawSidebar(g, s);
+        g.dispose();
+
+        //Remember what the layer was drawn for
+        staticLayerDrawn = true;
+        layerBoardVersion = s.boardVersion;
+        layerHold = s.holdType;
+        layerCanSwitchHold = s.canSwitchHold;
+        layerLinesCleared = s.linesCleared;
+        layerLineGoal = s.lineGoal;
+        System.arraycopy(s.next, 0, layerNext, 0, RenderSnapshot.NEXT_PIECES);
+    }
+
+
+    // Runs physics code, called by guitetris
+    // Afterwards, publishSnapshot must be called so the update is drawn
+    public void update(){
+        //Remember where the piece was, to interpolate from it
+        Piece current = engine.current;
+        lastPiecesPlaced = engine.getPiecesPlaced();
+        lastType = current.getType();
+        lastRotation = current.getRotation();
+        lastX = current.getCenterX();
+        lastY = current.getCenterY();
+
+        engine.update();
+    }
+
+    //Draw the entire tetris grid
+    private void drawGrid(Graphics2D g, RenderSnapshot s){
+        //Loop through each row and column and draw the square
+        for (int row = 0; row < Board.ROWS; row++) {
+            for (int column = 0; column < Board.COLUMNS; column++) {
+                drawSquare(g, s, s.board.getType(row, column), row, column, false);
+            }
+        }
+    }
+
+    //Draws a red bar on the left edge of the grid, one square high for every garbage row waiting to rise
+    private void drawGarbageMeter(Graphics2D g, RenderSnapshot s){
+        int visibleRows = Board.ROWS - 10; //The top 10 rows of the board are not shown
+        int height = (SQUARE_LENGTH + 1) * Math.min(s.incomingGarbage, visibleRows);
+        int bottom = -160 + (SQUARE_LENGTH + 1) * Board.ROWS; //Same position as the bottom of the lowest row
+
+        g.setColor(Color.RED);
+        g.fillRect(179 - 10, bottom - height, 8, height);
+    }
+
+    /**
+     * Draws the current piece on the grid
+     *
+     * @param g The graphics object to draw on
+     * @param s The snapshot holding the piece
+     * @param centerY The row to draw the center of the piece at
+     * @param isGhost Whether the piece is a ghost piece
+     */
+    private void drawPiece(Graphics2D g, RenderSnapshot s, double centerY, boolean isGhost){
+        PieceType[][] pieceGrid = PieceType.getPieceGridFromRot(s.pieceType, s.pieceRotation);
+        //Grid of the tetris array is 3x3 except for the 'I' piece which is 4x4.
+        int length = 3;
+        if(s.pieceType == PieceType.I){
+            length = 4;
+        }
+        for (int i = 0; i < length; i++) {
+            for (int j = 0; j < length; j++) {
+                PieceType type = pieceGrid[i][j];
+                if(type == PieceType.NULL){ //Don't draw empty squares
+                    continue;
+                } else if(isGhost){ //we are drawing a ghost piece
+                    type = PieceType.GHOST;
+                }
+                //Draw the square (coordinates shifted by 1 to account for center position)
+                drawSquare(g, s, type, centerY - 1 + i, s.pieceX - 1 + j, !isGhost && s.onGround);
+            }
+        }
+    }
+
+    /**
+     * Draws the information the left sidebar that only changes when lines are cleared (not the hold piece or the time)
+     *
+     * @param g The graphics object to draw on
+     * @param s The snapshot to draw
+     */
+    private void drawSidebar(Graphics2D g, RenderSnapshot s){
+        g.setFont(labelFont);
+        g.setColor(Color.WHITE);
+
+        FontMetrics fm = g.getFontMetrics(); //Get font metrics for the font
+
+        int edgeOfLeftSidebar = 168; // Sidebar offset from side of the screen
+
+        // Stats for game (Time elapsed, lines cleared)
+        g.drawString("TIME", edgeOfLeftSidebar - fm.stringWidth("TIME"), 840);
+        g.drawString("LINES", edgeOfLeftSidebar - fm.stringWidth("LINES"), 760);
+
+        //Line Objective
+        //Versus has no line goal, so only the lines cleared are shown
+        g.setFont(smallValueFont);
+        String objective = s.gameMode == GameMode.VERSUS ? "" : String.format(" / %d", s.lineGoal);
+        g.drawString(objective, edgeOfLeftSidebar - fm.stringWidth(objective), 800);
+
+        g.setFont(largeValueFont);
+
+        fm = g.getFontMetrics(); // Font changed, get new metrics
+
+        g.drawString(String.valueOf(s.linesCleared), 205 - fm.stringWidth(objective)-fm.stringWidth(String.valueOf(s.linesCleared)), 800);
+    }
+
+    /**
+     * Draws the time passed/left in the left sidebar, which changes every frame
+     *
+     * @param g The graphics object to draw on
+     * @param s The snapshot to draw
+     */
+    private void drawTime(Graphics2D g, RenderSnapshot s){
+        int minutes, seconds, millis;
+
+        g.setColor(Color.WHITE);
+        g.setFont(smallValueFont);
+        long timeElapsed = s.timeElapsed;
+        if (s.gameMode != GameMode.BLITZ) {
+            minutes = (int) (timeElapsed / 1000 / 60); // Convert time to Min:Sec:MS
+            seconds = ((int) timeElapsed / 1000) % 60;
+            millis = (int) timeElapsed % 1000;
+            if (!s.started) {
+                minutes = seconds = millis = 0; // Hold timer at zero while game not started
+            }
+        } else { // makes timer for blitz count down
+            minutes = 1-(int) (timeElapsed / 1000 / 60); // Convert time to Min:Sec:MS
+            seconds = 59-((int) timeElapsed / 1000) % 60;
+            millis = 1000-(int) timeElapsed % 1000;
+            if (!s.started) { // Holds timer at 2 minutes before game starts
+                minutes = 2;
+                seconds = millis = 0;
+            }
+        }
+
+        //Milliseconds
+        String millisString = String.format(".%03d", millis);
+        g.drawString(millisString, 123, 880);
+
+        g.setFont(largeValueFont);
+
+        FontMetrics fm = g.getFontMetrics();
+
+        String minutesSeconds = String.format("%d:%02d", minutes, seconds);
+
+        g.drawString(minutesSeconds, 122 - fm.stringWidth(minutesSeconds), 880);
+    }
+
+
+    // Draws the piece player is current holding
+    private void drawHold(Graphics2D g, RenderSnapshot s) {
+        PieceType hold = s.holdType;
+        PieceType[][] pieceGrid = PieceType.getPieceGrid(hold); //The held piece is always upright
+        //Grid of the tetris array is 3x3 except for the 'I' piece which is 4x4.
+        int length = 3;
+        if(hold == PieceType.I){
+            length = 4;
+        }
+        for (int i = 0; i < length; i++) {
+            for (int j = 0; j < length; j++) { // For every piece in the 2D piece grid, draw that piece.
+                PieceType type = pieceGrid[i][j];
+                if(!s.canSwitchHold && type != PieceType.NULL){ // If you can't switch the held piece, draw as outline only
+                    type = PieceType.GHOST;
+                }
+                if (hold == PieceType.I) { // The "I" and "O" pieces need to be realigned due to their irregular shape
+                    drawSquare(g, s, type, 10.85 + i, -4.6 + j, false);
+                } else if (hold == PieceType.O) {
+                    drawSquare(g, s, type, 11.2 + i, -3.5 + j, false);
+                } else {
+                    drawSquare(g, s, type, 11.2 + i, -4 + j, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draw the next 5 pieces in the queue.
+     *
+     * @param g The graphics object to draw to
+     * @param s The snapshot to draw
+     */
+    public void drawNext(Graphics2D g, RenderSnapshot s) {
+        PieceType nextPiece; //Holds the next piece to be drawn
+        PieceType[][] pieceGrid; //Holds the grid of the piece to be drawn
+        PieceType type; //Holds the piece type that will be analysed
+
+        for (int i = 0; i < 5; i++) { // Draws the next 5 pieces in the bag
+            nextPiece = s.next[i];
+            pieceGrid = PieceType.getPieceGrid(nextPiece);
+
+            //Grid of the tetris array is 3x3 except for the 'I' piece which is 4x4.
+            int length = 3;
+            if(nextPiece == PieceType.I){
+                length = 4;
+            }
+            for (int j = 0; j < length; j++) {
+                for (int k = 0; k < length; k++) { // for loops draw each square of the piece grid
+
+                    type = pieceGrid[j][k];
+                    //Handle I and O pieces differently since they aren't in they aren't stored completely centered by their center point
+
+                    if (nextPiece == PieceType.I) {
+                        drawSquare(g, s, type, 10.85 + i*3 + j, 11.4 + k, false);
+                    } else if (nextPiece == PieceType.O) {
+                        drawSquare(g, s, type, 11.2 + i*length + j, 12.5 + k, false);
+                    } else {
+                        drawSquare(g, s, type, 11.2 + i*length + j, 12 + k, false);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws a square of the given type at the given coordinates.
+     *
+     * If the piece is on the ground, it will blink.
+     *
+     * @param g The graphics object to draw on
+     * @param s The snapshot being drawn, for the blinking animation
+     * @param piece The type of piece to draw
+     * @param row The row of the grid
+     * @param column The column of the grid
+     * @param onGround Whether the piece is on the ground or not
+     */
+    private void drawSquare(Graphics2D g, RenderSnapshot s, PieceType piece, double row, double column, boolean onGround){
+        if(piece.getId() == -1){ //null piece
+            return;
+        }
+        //Position found through trial and error. 1 is added to account for the grid lines.
+        int xPos = (int)(179 + (SQUARE_LENGTH +1)*(column));
+        int yPos = (int) (-160 + (SQUARE_LENGTH +1)*row);
+
+        //Get the position of the square in the sprite. 1 is added to account for spacing in the sprite
+        int xPosInSprite = (SQUARE_LENGTH +1)*piece.getId();
+
+        //Draw the square
+        g.drawImage(Assets.Game.PIECES.get(), xPos, yPos, xPos + SQUARE_LENGTH, yPos + SQUARE_LENGTH, xPosInSprite, 0, xPosInSprite+ SQUARE_LENGTH, SQUARE_LENGTH, null);
+
+        //If the piece is on the ground, we draw a blinking animation to indicate that the piece will be settled
+        if(onGround) {
+            //The opacity of the blinking animation, based on sin wave equation on the current update frame
+            int opacity = Math.abs(((int) (Math.sin(s.updateFrame/30.0)*100))+50);
+
+            //Draw the blinking animation above the square
+            g.setColor(new Color(255, 255, 255, opacity));
+            g.fillRect(xPos, yPos, SQUARE_LENGTH, SQUARE_LENGTH);
+        }
+    }
+
+    /**
+     * @return The game that is drawn
+     */
+    public TetrisEngine getEngine() {
+        return engine;
+    }
+
+    // Attempt to move the current piece to the right
+    public void moveRight(){
+        engine.moveRight();
+    }
+
+    // Attempt to move the current piece to the left
+    public void moveLeft(){
+        engine.moveLeft();
+    }
+
+    // Drop the current piece by 1 block
+    public void dropPiece(){
+        engine.dropPiece();
+    }
+
+    // Hard drop the current piece
+    public void hardDrop(){
+        engine.hardDrop();
+    }
+
+    // Rotate the current piece clockwise
+    public void rotateCW(){
+        engine.rotateCW();
+    }
+
+    // Rotate the current piece counterclockwise
+    public void rotateCCW(){
+        engine.rotateCCW();
+    }
+
+    // Hold the current piece
+    public void holdPiece(){
+        engine.holdPiece();
+    }
+
+    /**
+     * @return True if the player is dead, false otherwise
+     */
+    public boolean isDied(){
+        return engine.isDied();
+    }
+
+    /**
+     * @return True if the player has completed the objective, false otherwise
+     */
+    public boolean isObjectiveCompleted(){
+        return engine.isObjectiveCompleted();
+    }
+
+    /**
+     * @return The final score of the player
+     */
+    public long getFinalScore() {
+        return engine.getFinalScore();
+    }
+
+    /**
+     * Returns the current game mode.
+     * Allows Gui class to access the current game mode
+     */
+    public GameMode getGameMode() {
+        return engine.getGameMode();
+    }
+}
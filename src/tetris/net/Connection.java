@@ -0,0 +1,136 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A client connected to a MatchServer.
+ *
+ * Frames can be sent from any thread. A frame is written straight to the socket if nothing is waiting to be written;
+ * if the socket doesn't accept all of it, the frame itself waits in the write queue and the rest is written by the
+ * selector thread when the socket is writable again. Frames are never copied, so one frame can be shared by every
+ * connection it is sent to. A client that stops reading is disconnected once its queue gets too long, so a slow
+ * client can't make the server run out of memory.
+ */
+package tetris.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+class Connection {
+    //Most bytes that can wait in the write queue before the client is disconnected
+    private static final int MAX_QUEUED_BYTES = 256 * 1024;
+
+    // The socket of the client
+    final SocketChannel channel;
+
+    // Bytes received that don't form a whole frame yet, only used by the selector thread
+    final ByteBuffer readBuffer = ByteBuffer.allocate(512);
+
+    // The match the client is playing in and their seat in it, null if they are not in a match
+    volatile ServerMatch match;
+    volatile int seat;
+
+    // Is the client waiting for a match? Only used by the selector thread
+    boolean waiting;
+
+    // Frames that could not be written yet, and their total size
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private int queuedBytes;
+
+    // Has the connection been closed?
+    private volatile boolean closed;
+
+    // The server, told when the socket has to be watched for writing or was closed
+    private final MatchServer server;
+
+    Connection(SocketChannel channel, MatchServer server) {
+        this.channel = channel;
+        this.server = server;
+    }
+
+    /**
+     * Sends a frame. Can be called from any thread.
+     *
+     * @param frame The frame, from its position to its limit. Its contents must never change, and it must not be used
+     *              by anything else as it may be kept until it is written
+     */
+    void send(ByteBuffer frame) {
+        synchronized (writeQueue) {
+            if (closed) {
+                return;
+            }
+            try {
+                if (writeQueue.isEmpty()) {
+                    channel.write(frame);
+                    if (!frame.hasRemaining()) {
+                        return;
+                    }
+                }
+                if (queuedBytes + frame.remaining() > MAX_QUEUED_BYTES) { //The client is not reading
+                    close();
+                    return;
+                }
+                writeQueue.add(frame);
+                queuedBytes += frame.remaining();
+                if (writeQueue.size() == 1) { //The selector has to tell us when the socket can be written again
+                    server.requestWrite(this);
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Writes as much of the write queue as the socket accepts. Called by the selector thread.
+     *
+     * @return True if the write queue is empty
+     */
+    boolean flush() {
+        synchronized (writeQueue) {
+            try {
+                while (!writeQueue.isEmpty()) {
+                    ByteBuffer frame = writeQueue.peek();
+                    int written = channel.write(frame);
+                    queuedBytes -= written;
+                    if (frame.hasRemaining()) {
+                        return false;
+                    }
+                    writeQueue.poll();
+                }
+            } catch (IOException e) {
+                close();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Closes the connection. If the client was in a match, they lose. Can be called from any thread.
+     */
+    void close() {
+        synchronized (writeQueue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writeQueue.clear();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            //Nothing more can be done with the socket
+        }
+        ServerMatch current = match;
+        if (current != null) {
+            current.disconnect(seat);
+        }
+    }
+
+    /**
+     * @return True if the connection has been closed
+     */
+    boolean isClosed() {
+        return closed;
+    }
+}
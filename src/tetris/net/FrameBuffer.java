@@ -0,0 +1,59 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A growable buffer that one frame at a time is encoded into, see Protocol.
+ *
+ * The buffer is reused for every frame. Finished frames are copied out of it once, so a frame can be shared by any
+ * number of connections.
+ */
+package tetris.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+
+class FrameBuffer extends ByteArrayOutputStream {
+    // Writes numbers into the buffer
+    final DataOutputStream data = new DataOutputStream(this);
+
+    FrameBuffer() {
+        super(256);
+    }
+
+    /**
+     * Starts a new frame, discarding the last one.
+     *
+     * @param type The message type
+     */
+    void begin(int type) {
+        reset();
+        write(0); //Length, filled in by finish
+        write(0);
+        write(type);
+    }
+
+    /**
+     * Replaces a byte that was already written, for values only known once the rest of the frame is written.
+     *
+     * @param index The index of the byte in the frame, counting the length and type bytes
+     * @param value The new value of the byte
+     */
+    void set(int index, int value) {
+        buf[index] = (byte) value;
+    }
+
+    /**
+     * Ends the frame.
+     *
+     * @return The frame. It must not be modified, give every connection its own duplicate() of it
+     */
+    ByteBuffer finish() {
+        int length = count - 2;
+        if (length > Protocol.MAX_FRAME) {
+            throw new IllegalStateException("Frame too long: " + length);
+        }
+        buf[0] = (byte) (length >>> 8);
+        buf[1] = (byte) length;
+        return ByteBuffer.wrap(toByteArray()).asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Load test of MatchServer over loopback. A server is started in this process, then enough clients connect to fill
+ * the given number of matches. Every client holds random keys, and joins a new match when theirs ends. Spectators
+ * watch the matches too, and watch any match once theirs ends.
+ *
+ * At the end, the tick time used by the server is printed, along with how many states and bytes the clients received
+ * and whether everyone watching a match (players and spectators) saw the same boards.
+ *
+ * Usage: java tetris.net.LoadTest [--matches N] [--players N] [--spectators N] [--seconds N] [--threads N] [--tps N]
+ */
+package tetris.net;
+
+import tetris.game.PlayerController;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Random;
+
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        int matches = 1000;
+        int players = 2;
+        int spectators = 0;
+        int seconds = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int ticksPerSecond = 144;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--matches":
+                    matches = Integer.parseInt(args[++i]);
+                    break;
+                case "--players":
+                    players = Integer.parseInt(args[++i]);
+                    break;
+                case "--spectators":
+                    spectators = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--tps":
+                    ticksPerSecond = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        if (players < 2 || players > Protocol.MAX_PLAYERS) {
+            System.err.println("--players must be from 2 to " + Protocol.MAX_PLAYERS);
+            return;
+        }
+
+        MatchServer server = new MatchServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), players, threads, ticksPerSecond);
+        server.start();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+
+        MatchClient[] clients = new MatchClient[matches * players];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new MatchClient(address);
+            clients[i].join();
+        }
+        MatchClient[] watchers = new MatchClient[spectators];
+        for (int i = 0; i < watchers.length; i++) {
+            watchers[i] = new MatchClient(address);
+            watchers[i].spectate(i % matches);
+        }
+        System.out.printf("%d clients connected, %d matches of %d players, %d spectators, %d scheduler threads, %d ticks per second%n",
+                clients.length, matches, players, spectators, threads, ticksPerSecond);
+
+        //Every client changes its keys a few times a second, mostly to nothing, so games last a while
+        Random random = new Random(0);
+        long startTicks = server.getShardTicks();
+        long startBusy = server.getBusyNanos();
+        long start = System.nanoTime();
+        long end = start + seconds * 1000000000L;
+        long matchesEnded = 0;
+        while (System.nanoTime() < end) {
+            for (MatchClient client : clients) {
+                boolean wasInMatch = client.isInMatch();
+                client.poll();
+                if (wasInMatch && !client.isInMatch()) { //The match ended, so play another one
+                    matchesEnded++;
+                    client.join();
+                } else if (client.isInMatch() && random.nextInt(200) == 0) {
+                    client.sendInput(random.nextInt(4) == 0 ? random.nextInt(PlayerController.ALL_ACTIONS + 1) : 0);
+                }
+            }
+            for (MatchClient watcher : watchers) {
+                long frames = watcher.getFramesReceived();
+                watcher.poll();
+                //MATCH_END arrived, either the match ended or it didn't exist yet, so watch any match
+                if (!watcher.isInMatch() && watcher.getFramesReceived() != frames) {
+                    watcher.spectate(-1);
+                }
+            }
+            Thread.sleep(1);
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        int matchesPlaying = server.getMatchCount();
+        long shardTicks = server.getShardTicks() - startTicks;
+        double busyPercent = 100.0 * (server.getBusyNanos() - startBusy) / (elapsed * 1e9 * threads);
+
+        //Everyone watching the same match must have received the same boards once they have seen the same tick
+        HashMap<Integer, MatchClient> firstWatching = new HashMap<>();
+        int compared = 0, different = 0;
+        MatchClient[] everyone = new MatchClient[clients.length + watchers.length];
+        System.arraycopy(clients, 0, everyone, 0, clients.length);
+        System.arraycopy(watchers, 0, everyone, clients.length, watchers.length);
+        for (MatchClient client : everyone) {
+            if (!client.isInMatch() || client.getStatesReceived() == 0) {
+                continue;
+            }
+            MatchClient first = firstWatching.get(client.getMatchId());
+            if (first == null) {
+                firstWatching.put(client.getMatchId(), client);
+                continue;
+            }
+            if (first.getTick() != client.getTick()) {
+                continue;
+            }
+            for (int seat = 0; seat < players; seat++) {
+                compared++;
+                if (first.getPlayer(seat).board.getHash() != client.getPlayer(seat).board.getHash()) {
+                    different++;
+                }
+            }
+        }
+
+        long states = 0, playerBytes = 0, watcherBytes = 0;
+        for (MatchClient client : clients) {
+            states += client.getStatesReceived();
+            playerBytes += client.getBytesReceived();
+            client.close();
+        }
+        for (MatchClient watcher : watchers) {
+            states += watcher.getStatesReceived();
+            watcherBytes += watcher.getBytesReceived();
+            watcher.close();
+        }
+        System.out.printf("%.1f s: %d matches playing, %d matches ended, %.0f shard ticks per second (expected %d)%n",
+                elapsed, matchesPlaying, matchesEnded / players, shardTicks / elapsed, ticksPerSecond * threads);
+        System.out.printf("scheduler threads busy %.1f%% of the time, longest shard tick %.2f ms (budget %.2f ms)%n",
+                busyPercent, server.getMaxTickNanos() / 1e6, 1000.0 / ticksPerSecond);
+        System.out.printf("%.0f states received per second, boards compared %d, different %d%n", states / elapsed, compared, different);
+        System.out.printf("%.0f bytes per second per player", playerBytes / elapsed / clients.length);
+        if (watchers.length > 0) {
+            System.out.printf(", %.0f per spectator", watcherBytes / elapsed / watchers.length);
+        }
+        System.out.println();
+        server.stop();
+    }
+}
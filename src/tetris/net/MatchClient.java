@@ -0,0 +1,310 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Client of a MatchServer. It sends the keys the player holds and keeps the latest state the server sent.
+ * A client can also spectate a match, in which case it only receives the state.
+ *
+ * The state arrives as a keyframe followed by deltas (see Protocol), which are applied to the boards kept here.
+ *
+ * The socket is non-blocking: poll reads whatever has arrived without waiting, so it can be called once per frame from
+ * the game loop, and one thread can poll many clients (see LoadTest).
+ */
+package tetris.net;
+
+import tetris.game.Board;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+public class MatchClient implements Closeable {
+    //The state of one player of the match, as last sent by the server
+    public static class PlayerState {
+        public boolean died;
+        public int pieceType, rotation, x, y;
+        public int holdType;
+        public int incomingGarbage;
+        public int linesCleared;
+        public final Board board = new Board();
+    }
+
+    // The socket to the server
+    private final SocketChannel channel;
+
+    // Bytes received that don't form a whole frame yet
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(Protocol.MAX_FRAME + 2);
+
+    // Buffer of the frames sent to the server
+    private final FrameBuffer frame = new FrameBuffer();
+
+    // The current match, set by MATCH_START
+    private boolean inMatch;
+    private int matchId, seat;
+    private long seed;
+    private int ticksPerSecond;
+    private PlayerState[] players = new PlayerState[0];
+
+    // Tick of the last state received
+    private int tick;
+
+    // Has a keyframe of the current match been received? Deltas can't be applied before one
+    private boolean hasKeyframe;
+
+    // Winner of the last match, -1 if nobody survived, -2 if no match has ended
+    private int winner = -2;
+
+    // Number of frames and bytes received
+    private long statesReceived, framesReceived, bytesReceived;
+
+    /**
+     * Connects to a server.
+     *
+     * @param address The address of the server
+     */
+    public MatchClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+        channel.configureBlocking(false);
+    }
+
+    /**
+     * Asks the server for a match. MATCH_START arrives once enough players are waiting.
+     */
+    public void join() throws IOException {
+        frame.begin(Protocol.JOIN);
+        write(frame.finish());
+    }
+
+    /**
+     * Asks to watch a match. MATCH_START with the SPECTATOR seat arrives on the next tick of the match, or MATCH_END if
+     * the match doesn't exist or is over.
+     *
+     * @param matchId The id of the match, -1 for any match
+     */
+    public void spectate(int matchId) throws IOException {
+        frame.begin(Protocol.SPECTATE);
+        frame.data.writeInt(matchId);
+        write(frame.finish());
+    }
+
+    /**
+     * Sends the keys the player holds. Only needed when they change.
+     *
+     * @param actions Bitmask of the held actions, see PlayerController
+     */
+    public void sendInput(int actions) throws IOException {
+        frame.begin(Protocol.INPUT);
+        frame.write(actions);
+        write(frame.finish());
+    }
+
+    // Writes a whole frame. Client frames are tiny, so the socket accepts them straight away unless it is overloaded
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Handles every frame that has arrived, without waiting for more.
+     *
+     * @return The number of frames handled
+     * @throws EOFException If the server closed the connection
+     */
+    public int poll() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read == -1) {
+            throw new EOFException("The server closed the connection");
+        }
+        bytesReceived += read;
+        readBuffer.flip();
+        int handled = 0;
+        while (readBuffer.remaining() >= 2) {
+            int length = readBuffer.getShort(readBuffer.position()) & 0xFFFF;
+            if (readBuffer.remaining() < 2 + length) {
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(readBuffer.array(), readBuffer.position() + 2, length));
+            handleFrame(in);
+            readBuffer.position(readBuffer.position() + 2 + length);
+            handled++;
+        }
+        readBuffer.compact();
+        framesReceived += handled;
+        return handled;
+    }
+
+    // Handles one frame from the server
+    private void handleFrame(DataInputStream in) throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case Protocol.MATCH_START:
+                matchId = in.readInt();
+                seat = in.readUnsignedByte();
+                int playerCount = in.readUnsignedByte();
+                seed = in.readLong();
+                ticksPerSecond = in.readUnsignedShort();
+                if (players.length != playerCount) {
+                    players = new PlayerState[playerCount];
+                    for (int i = 0; i < playerCount; i++) {
+                        players[i] = new PlayerState();
+                    }
+                }
+                for (PlayerState player : players) {
+                    player.board.clear();
+                }
+                inMatch = true;
+                hasKeyframe = false;
+                tick = 0;
+                break;
+            case Protocol.KEYFRAME:
+                tick = in.readInt();
+                for (PlayerState player : players) {
+                    readInfo(in, player);
+                    player.board.readState(in);
+                }
+                hasKeyframe = true;
+                statesReceived++;
+                break;
+            case Protocol.DELTA:
+                if (!hasKeyframe) { //The server always sends a keyframe first, so this can't happen
+                    throw new IOException("Delta received before a keyframe");
+                }
+                tick = in.readInt();
+                int changedPlayers = in.readUnsignedByte();
+                for (int i = 0; i < players.length; i++) {
+                    if ((changedPlayers & (1 << i)) == 0) {
+                        continue;
+                    }
+                    readInfo(in, players[i]);
+                    int changedRows = in.readInt();
+                    for (int row = 0; row < Board.ROWS; row++) {
+                        if ((changedRows & (1 << row)) != 0) {
+                            players[i].board.readRow(in, row);
+                        }
+                    }
+                }
+                statesReceived++;
+                break;
+            case Protocol.MATCH_END:
+                winner = in.readByte();
+                inMatch = false;
+                break;
+            default:
+                throw new IOException("Unknown message type " + type);
+        }
+    }
+
+    // Reads the info of a player, see Protocol
+    private static void readInfo(DataInputStream in, PlayerState player) throws IOException {
+        player.died = (in.readUnsignedByte() & Protocol.FLAG_DIED) != 0;
+        player.pieceType = in.readByte();
+        player.rotation = in.readByte();
+        player.x = in.readByte();
+        player.y = in.readByte();
+        player.holdType = in.readByte();
+        player.incomingGarbage = in.readUnsignedShort();
+        player.linesCleared = in.readUnsignedShort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return True if the client is playing a match
+     */
+    public boolean isInMatch() {
+        return inMatch;
+    }
+
+    /**
+     * @return The id of the current or last match
+     */
+    public int getMatchId() {
+        return matchId;
+    }
+
+    /**
+     * @return True if this client is watching the match instead of playing in it
+     */
+    public boolean isSpectating() {
+        return seat == Protocol.SPECTATOR;
+    }
+
+    /**
+     * @return The seat of this client in the current or last match, Protocol.SPECTATOR if they are watching
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * @return The seed of the current or last match
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The number of ticks per second of the current or last match
+     */
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * @return The tick of the last state received
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * @return The number of players of the current or last match
+     */
+    public int getPlayerCount() {
+        return players.length;
+    }
+
+    /**
+     * @return The last state received of a player
+     */
+    public PlayerState getPlayer(int seat) {
+        return players[seat];
+    }
+
+    /**
+     * @return The winner of the last match, -1 if nobody survived, -2 if no match has ended yet
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * @return The number of bytes received
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return The number of KEYFRAME and DELTA frames received
+     */
+    public long getStatesReceived() {
+        return statesReceived;
+    }
+
+    /**
+     * @return The number of frames received
+     */
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+}
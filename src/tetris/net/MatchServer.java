@@ -0,0 +1,455 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Headless server that hosts versus matches for MatchClients over TCP. The server is authoritative: clients only send
+ * the keys they hold, and every game is simulated on the server.
+ *
+ * One selector thread does all the networking: it accepts clients, reads their frames and writes whatever the sockets
+ * didn't accept straight away. Clients that send JOIN wait in a queue until there are enough of them for a match.
+ * Clients that send SPECTATE watch a match without playing in it.
+ *
+ * Matches are ticked by a small fixed pool of scheduler threads instead of a thread per connection or per match.
+ * Every scheduler thread owns a shard of the matches and ticks all of them at the tick rate, so thousands of matches
+ * only need as many threads as there are cores.
+ *
+ * Usage: java tetris.net.MatchServer [--port N] [--players N] [--threads N] [--tps N]
+ */
+package tetris.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MatchServer {
+    // Number of players in every match
+    private final int playersPerMatch;
+
+    // Number of ticks every match runs in one second
+    private final int ticksPerSecond;
+
+    // Sockets
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    // Connections that have frames waiting to be written, handed to the selector thread
+    private final ConcurrentLinkedQueue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    // Clients waiting for a match, only used by the selector thread
+    private final ArrayList<Connection> waiting = new ArrayList<>();
+
+    // Matches being played by id, used to find the match a spectator wants to watch
+    private final ConcurrentHashMap<Integer, ServerMatch> matches = new ConcurrentHashMap<>();
+
+    // Frame used by the selector thread for answers
+    private final FrameBuffer frame = new FrameBuffer();
+
+    // Scheduler threads and the shard of matches each of them ticks
+    private final ScheduledExecutorService scheduler;
+    private final Shard[] shards;
+
+    // Seeds of new matches, only used by the selector thread
+    private final Random random = new Random();
+    private int nextMatchId;
+
+    // Thread running the selector loop
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    /**
+     * Creates a server listening on the given address. Nothing runs until start is called.
+     *
+     * @param address The address to listen on, port 0 picks a free port
+     * @param playersPerMatch The number of players in every match, from 2 to Protocol.MAX_PLAYERS
+     * @param threads The number of scheduler threads ticking the matches
+     * @param ticksPerSecond The number of ticks every match runs in one second
+     */
+    public MatchServer(InetSocketAddress address, int playersPerMatch, int threads, int ticksPerSecond) throws IOException {
+        if (playersPerMatch < 2 || playersPerMatch > Protocol.MAX_PLAYERS) {
+            throw new IllegalArgumentException("A match needs 2 to " + Protocol.MAX_PLAYERS + " players");
+        }
+        this.playersPerMatch = playersPerMatch;
+        this.ticksPerSecond = ticksPerSecond;
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 4096); //Large backlog, many clients can connect at once
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        scheduler = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Match scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        shards = new Shard[threads];
+        for (int i = 0; i < threads; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Starts accepting clients and ticking matches.
+     */
+    public void start() {
+        running = true;
+        long period = 1000000000L / ticksPerSecond;
+        for (Shard shard : shards) {
+            scheduler.scheduleAtFixedRate(shard, period, period, TimeUnit.NANOSECONDS);
+        }
+        selectorThread = new Thread(this::runSelector, "Match server selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * Stops the server and disconnects every client.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        selectorThread.join();
+        scheduler.shutdownNow();
+    }
+
+    // Selector loop: accepts clients, reads frames and writes queued frames
+    private void runSelector() {
+        try {
+            while (running) {
+                selector.select();
+
+                //Watch the sockets that couldn't take all of their frames
+                Connection connection;
+                while ((connection = pendingWrites.poll()) != null) {
+                    SelectionKey key = connection.channel.keyFor(selector);
+                    if (key != null && key.isValid()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    connection = (Connection) key.attachment();
+                    if (key.isWritable() && connection.flush()) {
+                        key.interestOps(SelectionKey.OP_READ); //Everything was written
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(connection);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException ignored) {
+                //Shutting down anyways
+            }
+        }
+    }
+
+    // Accepts every client that is waiting to connect
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true); //Frames are small and must arrive straight away
+            Connection connection = new Connection(channel, this);
+            channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    // Reads the frames a client has sent
+    private void read(Connection connection) {
+        ByteBuffer buffer = connection.readBuffer;
+        try {
+            if (connection.channel.read(buffer) == -1) {
+                connection.close();
+                return;
+            }
+        } catch (IOException e) {
+            connection.close();
+            return;
+        }
+
+        buffer.flip();
+        while (buffer.remaining() >= 2) {
+            int length = buffer.getShort(buffer.position()) & 0xFFFF;
+            if (length == 0 || length > buffer.capacity() - 2) { //Clients only send tiny frames
+                connection.close();
+                return;
+            }
+            if (buffer.remaining() < 2 + length) { //The rest of the frame hasn't arrived yet
+                break;
+            }
+            int end = buffer.position() + 2 + length;
+            buffer.position(buffer.position() + 2);
+            handleFrame(connection, buffer.get(), buffer);
+            if (connection.isClosed()) {
+                return;
+            }
+            buffer.position(end);
+        }
+        buffer.compact();
+    }
+
+    // Handles one frame from a client
+    private void handleFrame(Connection connection, int type, ByteBuffer body) {
+        switch (type) {
+            case Protocol.JOIN:
+                if (connection.match == null && !connection.waiting) {
+                    connection.waiting = true;
+                    waiting.add(connection);
+                    startMatches();
+                }
+                break;
+            case Protocol.INPUT:
+                ServerMatch match = connection.match;
+                if (match != null && body.hasRemaining()) {
+                    match.input(connection.seat, body.get() & 0xFF);
+                }
+                break;
+            case Protocol.SPECTATE:
+                if (body.remaining() < 4) {
+                    connection.close();
+                    break;
+                }
+                int id = body.getInt();
+                ServerMatch watched = id == -1 ? anyMatch() : matches.get(id);
+                if (watched != null) {
+                    watched.spectate(connection);
+                } else { //There is nothing to watch
+                    frame.begin(Protocol.MATCH_END);
+                    frame.write(-1);
+                    connection.send(frame.finish());
+                }
+                break;
+            default: //Not a message the server understands
+                connection.close();
+        }
+    }
+
+    // Returns any match being played, null if there are none
+    private ServerMatch anyMatch() {
+        for (ServerMatch match : matches.values()) {
+            return match;
+        }
+        return null;
+    }
+
+    // Starts matches while there are enough waiting clients
+    private void startMatches() {
+        waiting.removeIf(Connection::isClosed);
+        while (waiting.size() >= playersPerMatch) {
+            Connection[] players = new Connection[playersPerMatch];
+            for (int seat = 0; seat < playersPerMatch; seat++) {
+                players[seat] = waiting.remove(0);
+                players[seat].waiting = false;
+            }
+            long seed = random.nextLong();
+            ServerMatch match = new ServerMatch(nextMatchId++, players, seed, ticksPerSecond);
+            for (int seat = 0; seat < playersPerMatch; seat++) {
+                players[seat].seat = seat;
+                players[seat].match = match;
+            }
+            match.sendStart();
+            matches.put(match.id, match);
+
+            //The match goes to the scheduler thread with the fewest matches
+            Shard target = shards[0];
+            for (Shard shard : shards) {
+                if (shard.size.get() < target.size.get()) {
+                    target = shard;
+                }
+            }
+            target.size.incrementAndGet();
+            target.added.add(match);
+        }
+    }
+
+    /**
+     * Asks the selector thread to write the queued frames of a connection once its socket can be written.
+     *
+     * @param connection The connection with queued frames
+     */
+    void requestWrite(Connection connection) {
+        pendingWrites.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * @return The port the server is listening on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return The number of matches being played
+     */
+    public int getMatchCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.size.get();
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of times every shard of matches has been ticked, added up
+     */
+    public long getShardTicks() {
+        long ticks = 0;
+        for (Shard shard : shards) {
+            ticks += shard.ticks;
+        }
+        return ticks;
+    }
+
+    /**
+     * @return The time spent ticking matches in nanoseconds, added up over every scheduler thread
+     */
+    public long getBusyNanos() {
+        long nanos = 0;
+        for (Shard shard : shards) {
+            nanos += shard.busyNanos;
+        }
+        return nanos;
+    }
+
+    /**
+     * @return The longest time one shard took to tick all of its matches, in nanoseconds
+     */
+    public long getMaxTickNanos() {
+        long nanos = 0;
+        for (Shard shard : shards) {
+            nanos = Math.max(nanos, shard.maxTickNanos);
+        }
+        return nanos;
+    }
+
+    /**
+     * @return The number of scheduler threads
+     */
+    public int getThreadCount() {
+        return shards.length;
+    }
+
+    // The matches ticked by one scheduler thread
+    private class Shard implements Runnable {
+        // Matches of this shard, only used by its scheduler thread
+        private final ArrayList<ServerMatch> shardMatches = new ArrayList<>();
+
+        // Matches given to this shard by the selector thread, moved into shardMatches on the next tick
+        final ConcurrentLinkedQueue<ServerMatch> added = new ConcurrentLinkedQueue<>();
+
+        // Number of matches of this shard, including the ones just added
+        final AtomicInteger size = new AtomicInteger();
+
+        // Statistics, written by the scheduler thread
+        volatile long ticks, busyNanos, maxTickNanos;
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                ServerMatch match;
+                while ((match = added.poll()) != null) {
+                    shardMatches.add(match);
+                }
+
+                //Matches that are over are replaced by the last match, so nothing has to be shifted
+                for (int i = 0; i < shardMatches.size(); i++) {
+                    if (!shardMatches.get(i).tick()) {
+                        matches.remove(shardMatches.get(i).id);
+                        shardMatches.set(i, shardMatches.get(shardMatches.size() - 1));
+                        shardMatches.remove(shardMatches.size() - 1);
+                        size.decrementAndGet();
+                        i--;
+                    }
+                }
+            } catch (RuntimeException e) { //An exception would stop the shard from ever being ticked again
+                e.printStackTrace();
+            }
+            long elapsed = System.nanoTime() - start;
+            ticks++;
+            busyNanos += elapsed;
+            maxTickNanos = Math.max(maxTickNanos, elapsed);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = Protocol.DEFAULT_PORT;
+        int players = 2;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int ticksPerSecond = 144;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--players":
+                    players = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--tps":
+                    ticksPerSecond = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        if (players < 2 || players > Protocol.MAX_PLAYERS) {
+            System.err.println("--players must be from 2 to " + Protocol.MAX_PLAYERS);
+            return;
+        }
+
+        MatchServer server = new MatchServer(new InetSocketAddress(port), players, threads, ticksPerSecond);
+        server.start();
+        System.out.printf("Match server on port %d: %d players per match, %d scheduler threads, %d ticks per second%n",
+                server.getPort(), players, threads, ticksPerSecond);
+
+        //Print the load every 10 seconds until the server is killed
+        long lastTicks = 0, lastBusy = 0;
+        while (true) {
+            Thread.sleep(10000);
+            long ticks = server.getShardTicks(), busy = server.getBusyNanos();
+            System.out.printf("%d matches, %.1f%% of the tick time used%n", server.getMatchCount(),
+                    100.0 * (busy - lastBusy) / Math.max(1, ticks - lastTicks) / (1e9 / ticksPerSecond));
+            lastTicks = ticks;
+            lastBusy = busy;
+        }
+    }
+}
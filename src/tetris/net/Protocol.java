@@ -0,0 +1,60 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Messages sent between MatchServer and MatchClient.
+ *
+ * Every message is a frame: its length as an unsigned short (not counting the 2 length bytes), then its type byte,
+ * then its body. Numbers are big endian, like DataOutput.
+ *
+ * Client to server:
+ *   JOIN         no body. Joins the queue for the next match
+ *   INPUT        action mask byte (see PlayerController). Sent whenever the held keys change
+ *   SPECTATE     match id int, -1 for any match. Subscribes to the state of a match without playing in it
+ *
+ * Server to client:
+ *   MATCH_START  match id int, seat byte (SPECTATOR for spectators), player count byte (at most MAX_PLAYERS),
+ *                seed long, ticks per second short
+ *   KEYFRAME     tick int, then for every player: their info, then their whole board (Board.writeState)
+ *   DELTA        tick int, mask byte of the players that changed, then for every player that changed: their info,
+ *                a mask int of the rows of their board that changed, then every changed row (Board.writeRow)
+ *   MATCH_END    winner seat byte, -1 if nobody survived. Also the answer to SPECTATE if the match doesn't exist
+ *
+ * The info of a player is: flags byte, current piece id, rotation, column and row bytes, held piece id byte,
+ * incoming garbage short, lines cleared short.
+ *
+ * A subscriber always gets a KEYFRAME first. After that, every tick where anything changed gets a DELTA against the
+ * tick before it, and a KEYFRAME is sent again every few seconds. Most ticks change nothing, and most changes are a
+ * piece moving or a few rows, so a match costs a few bytes per tick instead of a whole grid per player.
+ */
+package tetris.net;
+
+public class Protocol {
+    //Port used when none is given
+    public static final int DEFAULT_PORT = 7777;
+
+    //Largest length of a frame
+    public static final int MAX_FRAME = 0xFFFF;
+
+    //Client to server message types
+    public static final int JOIN = 1;
+    public static final int INPUT = 2;
+    public static final int SPECTATE = 3;
+
+    //Server to client message types
+    public static final int MATCH_START = 16;
+    public static final int KEYFRAME = 17;
+    public static final int DELTA = 18;
+    public static final int MATCH_END = 19;
+
+    //Most players in a match, as the mask of the players that changed in a DELTA is one byte
+    public static final int MAX_PLAYERS = 8;
+
+    //Seat of a spectator in MATCH_START
+    public static final int SPECTATOR = 0xFF;
+
+    //Bits of the player flags
+    public static final int FLAG_DIED = 1;
+
+    //Number of seconds between keyframes
+    public static final int KEYFRAME_SECONDS = 5;
+}
@@ -0,0 +1,214 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A versus match hosted by a MatchServer.
+ *
+ * The selector thread stores the inputs of the players as they arrive, and the scheduler thread the match belongs to
+ * runs its ticks. Inputs are handed over through atomic arrays, so the match itself is only ever touched by its
+ * scheduler thread.
+ *
+ * The players and any number of spectators subscribe to the state of the match. Every tick is encoded once by a
+ * StateEncoder, and the same frame is given to every subscriber.
+ */
+package tetris.net;
+
+import tetris.game.PlayerController;
+import tetris.game.VersusMatch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+class ServerMatch {
+    //Bit of the pressed inputs that means the player disconnected
+    private static final int DISCONNECTED = 1 << 8;
+
+    // Id of the match, unique on its server
+    final int id;
+
+    // The match and the clients playing it, by seat
+    private final VersusMatch match;
+    private final Connection[] players;
+
+    // Latest action mask of every player, and every action pressed since the last tick
+    // Pressed actions are kept so a key that is pressed and released between two ticks still counts
+    private final AtomicIntegerArray held;
+    private final AtomicIntegerArray pressed;
+
+    // Actions of every player for the current tick
+    private final int[] actions;
+
+    // Seed and tick rate of the match, sent to every subscriber
+    private final long seed;
+    private final int ticksPerSecond;
+
+    // Everyone the state is sent to: the players, then the spectators. Only used by the scheduler thread
+    private final ArrayList<Connection> subscribers = new ArrayList<>();
+
+    // Spectators that asked to watch, added to the subscribers on the next tick
+    private final ConcurrentLinkedQueue<Connection> newSpectators = new ConcurrentLinkedQueue<>();
+
+    // MATCH_END of the match, set once it is over and before closed
+    private volatile ByteBuffer end;
+
+    // Set by the last tick before it takes the last spectators, after which spectate answers with MATCH_END itself
+    private volatile boolean closed;
+
+    // Encodes the state of the match
+    private final StateEncoder encoder;
+
+    // Number of ticks between keyframes, and whether the next state must be a keyframe
+    private final int keyframeInterval;
+    private boolean keyframeNeeded;
+
+    // Frame used for the messages that are not states
+    private final FrameBuffer frame = new FrameBuffer();
+
+    ServerMatch(int id, Connection[] players, long seed, int ticksPerSecond) {
+        this.id = id;
+        this.players = players;
+        this.seed = seed;
+        this.ticksPerSecond = ticksPerSecond;
+        this.match = new VersusMatch(players.length, ticksPerSecond, seed);
+        this.held = new AtomicIntegerArray(players.length);
+        this.pressed = new AtomicIntegerArray(players.length);
+        this.actions = new int[players.length];
+        this.encoder = new StateEncoder(match);
+        this.keyframeInterval = Protocol.KEYFRAME_SECONDS * ticksPerSecond;
+        this.keyframeNeeded = true; //The players start with a keyframe
+        Collections.addAll(subscribers, players);
+    }
+
+    /**
+     * Adds a spectator. They get MATCH_START and a keyframe on the next tick, or only MATCH_END if the match is over.
+     * Can be called from any thread.
+     *
+     * @param spectator The connection of the spectator
+     */
+    void spectate(Connection spectator) {
+        newSpectators.add(spectator);
+        //The last tick sets closed before it takes the last spectators. If it is set, the spectator was either taken by
+        //that tick, which sends them MATCH_END, or is still in the queue, where nothing will ever take them
+        if (closed && newSpectators.remove(spectator)) {
+            spectator.send(end.duplicate());
+        }
+    }
+
+    /**
+     * Stores the actions held by a player. Called by the selector thread.
+     *
+     * @param seat The seat of the player
+     * @param mask The actions they hold
+     */
+    void input(int seat, int mask) {
+        held.set(seat, mask);
+        pressed.accumulateAndGet(seat, mask, (old, added) -> old | added);
+    }
+
+    /**
+     * Makes a player lose because they disconnected. Can be called from any thread.
+     *
+     * @param seat The seat of the player
+     */
+    void disconnect(int seat) {
+        input(seat, DISCONNECTED);
+    }
+
+    /**
+     * Runs one tick of the match and sends the new state to the subscribers. Called by the scheduler thread.
+     *
+     * @return False once the match is over
+     */
+    boolean tick() {
+        for (int seat = 0; seat < players.length; seat++) {
+            int pressedActions = pressed.getAndSet(seat, 0);
+            if ((pressedActions & DISCONNECTED) != 0) {
+                match.getPlayer(seat).die();
+            }
+            actions[seat] = (held.get(seat) | pressedActions) & PlayerController.ALL_ACTIONS;
+        }
+        match.update(actions);
+
+        //New spectators start watching from this tick, with a keyframe
+        Connection spectator;
+        while ((spectator = newSpectators.poll()) != null) {
+            spectator.send(encodeStart(Protocol.SPECTATOR));
+            subscribers.add(spectator);
+            keyframeNeeded = true;
+        }
+
+        //Only one frame is encoded, whatever the number of subscribers
+        if (keyframeNeeded || match.getClock().getTicks() % keyframeInterval == 0) {
+            broadcast(encoder.encodeKeyframe());
+            keyframeNeeded = false;
+        } else {
+            ByteBuffer delta = encoder.encodeDelta();
+            if (delta != null) {
+                broadcast(delta);
+            }
+        }
+
+        try {
+            if (match.isOver()) {
+                frame.begin(Protocol.MATCH_END);
+                frame.data.writeByte(match.getWinner());
+                end = frame.finish();
+                closed = true; //Spectators that come after this get the end from spectate
+                while ((spectator = newSpectators.poll()) != null) { //Spectators that came too late only get the end
+                    subscribers.add(spectator);
+                }
+                broadcast(end);
+                for (Connection player : players) {
+                    player.match = null; //The players can join another match
+                }
+                return false;
+            }
+        } catch (IOException e) { //Writing to a FrameBuffer can't fail
+            throw new IllegalStateException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Sends a frame to every subscriber. The frame is shared, not copied.
+     *
+     * @param message The frame to send
+     */
+    private void broadcast(ByteBuffer message) {
+        for (int i = 0; i < subscribers.size(); i++) {
+            Connection subscriber = subscribers.get(i);
+            if (i >= players.length && subscriber.isClosed()) { //Spectators that left are forgotten
+                subscribers.remove(i--);
+                continue;
+            }
+            subscriber.send(message.duplicate()); //Every subscriber needs their own position in the frame
+        }
+    }
+
+    /**
+     * Sends MATCH_START to every player.
+     */
+    void sendStart() {
+        for (int seat = 0; seat < players.length; seat++) {
+            players[seat].send(encodeStart(seat));
+        }
+    }
+
+    // Encodes MATCH_START for the given seat
+    private ByteBuffer encodeStart(int seat) {
+        try {
+            frame.begin(Protocol.MATCH_START);
+            frame.data.writeInt(id);
+            frame.data.writeByte(seat);
+            frame.data.writeByte(players.length);
+            frame.data.writeLong(seed);
+            frame.data.writeShort(ticksPerSecond);
+            return frame.finish();
+        } catch (IOException e) { //Writing to a FrameBuffer can't fail
+            throw new IllegalStateException(e);
+        }
+    }
+}
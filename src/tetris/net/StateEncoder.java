@@ -0,0 +1,165 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Encodes the state of a versus match as KEYFRAME and DELTA frames, see Protocol.
+ *
+ * The encoder remembers what it last encoded for every player: their info and a copy of their board. A delta only
+ * holds the players whose info or board changed, and only the rows of the board that are different from the copy, so
+ * line clears and garbage (which move many rows) are handled the same way as a piece locking (which changes a few).
+ *
+ * Every frame is encoded once and shared by every connection it is sent to.
+ */
+package tetris.net;
+
+import tetris.game.Board;
+import tetris.game.PieceType;
+import tetris.game.TetrisEngine;
+import tetris.game.VersusMatch;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+class StateEncoder {
+    //Number of values in the info of a player
+    private static final int INFO_SIZE = 8;
+
+    // The match being encoded
+    private final VersusMatch match;
+
+    // Info and board of every player as they were last encoded
+    private final int[][] sentInfo;
+    private final Board[] sentBoards;
+
+    // Board version of every player when their board was last encoded, so unchanged boards are not compared
+    private final int[] sentVersions;
+
+    // Info of a player being encoded
+    private final int[] info = new int[INFO_SIZE];
+
+    // Frame being encoded
+    private final FrameBuffer frame = new FrameBuffer();
+
+    StateEncoder(VersusMatch match) {
+        this.match = match;
+        int players = match.getPlayerCount();
+        sentInfo = new int[players][INFO_SIZE];
+        sentBoards = new Board[players];
+        sentVersions = new int[players];
+        for (int i = 0; i < players; i++) {
+            sentBoards[i] = new Board();
+        }
+    }
+
+    /**
+     * Encodes the full state of the match.
+     *
+     * @return The KEYFRAME frame
+     */
+    ByteBuffer encodeKeyframe() {
+        try {
+            frame.begin(Protocol.KEYFRAME);
+            DataOutputStream out = frame.data;
+            out.writeInt((int) match.getClock().getTicks());
+            for (int seat = 0; seat < match.getPlayerCount(); seat++) {
+                TetrisEngine engine = match.getPlayer(seat);
+                readInfo(engine, sentInfo[seat]);
+                writeInfo(out, sentInfo[seat]);
+                engine.board.writeState(out);
+                sentBoards[seat].copyFrom(engine.board);
+                sentVersions[seat] = engine.board.getVersion();
+            }
+            return frame.finish();
+        } catch (IOException e) { //Writing to a FrameBuffer can't fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encodes what changed since the last frame that was encoded.
+     *
+     * @return The DELTA frame, or null if nothing changed
+     */
+    ByteBuffer encodeDelta() {
+        try {
+            frame.begin(Protocol.DELTA);
+            DataOutputStream out = frame.data;
+            out.writeInt((int) match.getClock().getTicks());
+            int changedMaskIndex = frame.size();
+            out.writeByte(0); //Mask of the players that changed, filled in at the end
+
+            int changedPlayers = 0;
+            for (int seat = 0; seat < match.getPlayerCount(); seat++) {
+                TetrisEngine engine = match.getPlayer(seat);
+                Board board = engine.board;
+                readInfo(engine, info);
+
+                //Find the rows that are different from the last board that was encoded
+                int changedRows = 0;
+                if (board.getVersion() != sentVersions[seat]) {
+                    for (int row = 0; row < Board.ROWS; row++) {
+                        if (!board.rowEquals(sentBoards[seat], row)) {
+                            changedRows |= 1 << row;
+                        }
+                    }
+                    sentVersions[seat] = board.getVersion();
+                }
+                if (changedRows == 0 && sameInfo(info, sentInfo[seat])) {
+                    continue;
+                }
+
+                changedPlayers |= 1 << seat;
+                System.arraycopy(info, 0, sentInfo[seat], 0, INFO_SIZE);
+                writeInfo(out, info);
+                out.writeInt(changedRows);
+                for (int row = 0; row < Board.ROWS; row++) {
+                    if ((changedRows & (1 << row)) != 0) {
+                        board.writeRow(out, row);
+                    }
+                }
+                if (changedRows != 0) {
+                    sentBoards[seat].copyFrom(board);
+                }
+            }
+
+            if (changedPlayers == 0) {
+                return null;
+            }
+            frame.set(changedMaskIndex, changedPlayers);
+            return frame.finish();
+        } catch (IOException e) { //Writing to a FrameBuffer can't fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Reads the info of a player: flags, piece, rotation, column, row, held piece, incoming garbage, lines cleared
+    private static void readInfo(TetrisEngine engine, int[] info) {
+        info[0] = engine.isDied() ? Protocol.FLAG_DIED : 0;
+        info[1] = engine.current.getType().getId();
+        info[2] = engine.current.getRotation();
+        info[3] = engine.current.getCenterX();
+        info[4] = engine.current.getCenterY();
+        info[5] = engine.hold == null ? PieceType.NULL.getId() : engine.hold.getType().getId();
+        info[6] = engine.getIncomingGarbage();
+        info[7] = engine.linesCleared;
+    }
+
+    // Writes the info of a player
+    private static void writeInfo(DataOutputStream out, int[] info) throws IOException {
+        for (int i = 0; i < 6; i++) {
+            out.writeByte(info[i]);
+        }
+        out.writeShort(info[6]);
+        out.writeShort(info[7]);
+    }
+
+    // Checks if two infos are the same
+    private static boolean sameInfo(int[] a, int[] b) {
+        for (int i = 0; i < INFO_SIZE; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A replay file loaded into memory: the game settings, every change of the held actions and the keyframes.
+ *
+ * File format (all numbers big endian, varints are unsigned LEB128):
+ *   "TRPL", version byte, game mode ordinal byte, seed (8 bytes), ticks per second varint, start tick varint
+ *   then a list of records, each a tick gap varint (ticks since the last record) followed by a code byte:
+ *     0 to 127: the new bitmask of held actions (see PlayerController)
+ *     KEYFRAME: a varint length and the state of the game after the tick (see ReplayPlayer.writeKeyframe)
+ *     END or END_INCOMPLETE: the last record, the game ended on this tick
+ *
+ * The game starts at the start tick, which is the first tick the game was updated on. Actions that change on a tick
+ * are used from that tick on.
+ */
+package tetris.replay;
+
+import tetris.game.GameMode;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public class Replay {
+    //First bytes of every replay file
+    public static final byte[] MAGIC = {'T', 'R', 'P', 'L'};
+    public static final int VERSION = 4;
+
+    //Record codes that are not action masks. Action masks only use the low 7 bits, so these can't be mistaken for one
+    public static final int KEYFRAME = 0xFD;
+    public static final int END_INCOMPLETE = 0xFE;
+    public static final int END = 0xFF;
+
+    //Game settings
+    public final GameMode gameMode;
+    public final long seed;
+    public final int ticksPerSecond;
+    public final long startTick;
+
+    //The tick the game ended at, and false if some inputs were dropped while recording
+    public final long endTick;
+    public final boolean complete;
+
+    //Every change of the held actions, sorted by tick
+    public final long[] changeTicks;
+    public final byte[] changeMasks;
+    public final int changeCount;
+
+    //Every keyframe, sorted by tick
+    public final long[] keyframeTicks;
+    public final byte[][] keyframes;
+    public final int keyframeCount;
+
+    private Replay(GameMode gameMode, long seed, int ticksPerSecond, long startTick, long endTick, boolean complete,
+                   long[] changeTicks, byte[] changeMasks, int changeCount,
+                   long[] keyframeTicks, byte[][] keyframes, int keyframeCount) {
+        this.gameMode = gameMode;
+        this.seed = seed;
+        this.ticksPerSecond = ticksPerSecond;
+        this.startTick = startTick;
+        this.endTick = endTick;
+        this.complete = complete;
+        this.changeTicks = changeTicks;
+        this.changeMasks = changeMasks;
+        this.changeCount = changeCount;
+        this.keyframeTicks = keyframeTicks;
+        this.keyframes = keyframes;
+        this.keyframeCount = keyframeCount;
+    }
+
+    /**
+     * Loads a replay file.
+     *
+     * @param file The replay file
+     * @return The replay
+     * @throws IOException If the file can't be read or is not a replay
+     */
+    public static Replay load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            //Header
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " is not a replay file");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported replay version " + version);
+            }
+            GameMode gameMode = GameMode.values()[in.readUnsignedByte()];
+            long seed = in.readLong();
+            int ticksPerSecond = (int) readVarint(in);
+            long startTick = readVarint(in);
+
+            //Records, the arrays are doubled whenever they are full
+            long[] changeTicks = new long[256];
+            byte[] changeMasks = new byte[256];
+            int changeCount = 0;
+            long[] keyframeTicks = new long[16];
+            byte[][] keyframes = new byte[16][];
+            int keyframeCount = 0;
+
+            long tick = startTick;
+            while (true) {
+                tick += readVarint(in);
+                int code = in.readUnsignedByte();
+                if (code == END || code == END_INCOMPLETE) {
+                    return new Replay(gameMode, seed, ticksPerSecond, startTick, tick, code == END,
+                            changeTicks, changeMasks, changeCount, keyframeTicks, keyframes, keyframeCount);
+                } else if (code == KEYFRAME) {
+                    if (keyframeCount == keyframeTicks.length) {
+                        keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+                        keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+                    }
+                    byte[] keyframe = new byte[(int) readVarint(in)];
+                    in.readFully(keyframe);
+                    keyframeTicks[keyframeCount] = tick;
+                    keyframes[keyframeCount] = keyframe;
+                    keyframeCount++;
+                } else {
+                    if (changeCount == changeTicks.length) {
+                        changeTicks = Arrays.copyOf(changeTicks, changeCount * 2);
+                        changeMasks = Arrays.copyOf(changeMasks, changeCount * 2);
+                    }
+                    changeTicks[changeCount] = tick;
+                    changeMasks[changeCount] = (byte) code;
+                    changeCount++;
+                }
+            }
+        } catch (EOFException e) { //The game closed before the replay was finished
+            throw new IOException(file + " ends before the end of the replay", e);
+        }
+    }
+
+    /**
+     * Writes an unsigned varint, 7 bits per byte with the high bit set on every byte except the last.
+     *
+     * @param out The stream to write to
+     * @param value The value to write, must not be negative
+     */
+    public static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads an unsigned varint written by writeVarint.
+     *
+     * @param in The stream to read from
+     * @return The value
+     */
+    public static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    //Return the length of the game in ticks
+    public long getLength() {
+        return endTick - startTick;
+    }
+}
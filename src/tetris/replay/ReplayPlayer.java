@@ -0,0 +1,184 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Plays a replay by driving a TetrisEngine with the recorded actions, exactly like GuiTetris drove the original game.
+ *
+ * The game is simulated one tick at a time with step, so it can be shown at normal speed, at any multiple of it, or
+ * simulated as fast as possible without a screen. Seeking restores the closest keyframe before the target tick and
+ * only simulates the ticks after it, so jumping anywhere in a long replay takes at most a few milliseconds.
+ */
+package tetris.replay;
+
+import tetris.game.PlayerController;
+import tetris.game.TetrisEngine;
+import tetris.util.TickClock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public class ReplayPlayer {
+    //The replay being played
+    private final Replay replay;
+
+    //The game being driven, its clock and the controller the actions are given to
+    private final TickClock clock;
+    private final TetrisEngine engine;
+    private final PlayerController controller;
+
+    //State of the game before its first tick, used to seek before the first keyframe
+    private final byte[] initialState;
+
+    //The last tick that was simulated
+    private long tick;
+
+    //Index of the next change of the actions, and the actions held right now
+    private int nextChange;
+    private int actions;
+
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+        clock = new TickClock(replay.ticksPerSecond);
+
+        //The game and the controller were created on tick 0, and the game was first updated on the start tick
+        engine = new TetrisEngine(replay.gameMode, clock, replay.seed);
+        controller = new PlayerController(engine);
+        tick = replay.startTick - 1;
+        clock.setTicks(tick);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            writeKeyframe(new DataOutputStream(bytes), engine, controller);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        initialState = bytes.toByteArray();
+    }
+
+    /**
+     * Simulates one physics update the same way GuiTetris does: the clock moves, the game updates, then the held
+     * actions are handled.
+     *
+     * @param clock The clock of the game
+     * @param engine The game
+     * @param controller The controller of the game
+     * @param actions The actions held on this update
+     */
+    public static void simulateTick(TickClock clock, TetrisEngine engine, PlayerController controller, int actions) {
+        clock.tick();
+        engine.update();
+        controller.update(actions);
+    }
+
+    /**
+     * Writes the state of a game and its controller as a keyframe.
+     *
+     * @param out The stream to write to
+     * @param engine The game
+     * @param controller The controller of the game
+     */
+    public static void writeKeyframe(DataOutput out, TetrisEngine engine, PlayerController controller) throws IOException {
+        engine.writeState(out);
+        controller.writeState(out);
+    }
+
+    /**
+     * Simulates the next tick of the replay.
+     *
+     * @return False if the replay is already over
+     */
+    public boolean step() {
+        if (tick >= replay.endTick) {
+            return false;
+        }
+        tick++;
+        while (nextChange < replay.changeCount && replay.changeTicks[nextChange] <= tick) {
+            actions = replay.changeMasks[nextChange++];
+        }
+        simulateTick(clock, engine, controller, actions);
+        return true;
+    }
+
+    /**
+     * Simulates the rest of the replay as fast as possible.
+     */
+    public void playToEnd() {
+        while (step()) ;
+    }
+
+    /**
+     * Moves the replay to any tick, forwards or backwards.
+     *
+     * @param target The tick to move to, clamped to the length of the replay
+     */
+    public void seek(long target) {
+        target = Math.max(replay.startTick - 1, Math.min(replay.endTick, target));
+
+        //Find the last keyframe at or before the target (-1 for the start of the game)
+        int keyframe = -1;
+        int low = 0, high = replay.keyframeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (replay.keyframeTicks[middle] <= target) {
+                keyframe = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        long keyframeTick = keyframe == -1 ? replay.startTick - 1 : replay.keyframeTicks[keyframe];
+
+        //Going backwards, or the keyframe is closer than the current tick
+        if (target < tick || keyframeTick > tick) {
+            restore(keyframe, keyframeTick);
+        }
+        while (tick < target) {
+            step();
+        }
+    }
+
+    // Restores the game to a keyframe
+    private void restore(int keyframe, long keyframeTick) {
+        byte[] state = keyframe == -1 ? initialState : replay.keyframes[keyframe];
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(state));
+            engine.readState(in);
+            controller.readState(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        tick = keyframeTick;
+        clock.setTicks(tick);
+
+        //The actions held are the ones of the last change at or before the keyframe
+        nextChange = 0;
+        while (nextChange < replay.changeCount && replay.changeTicks[nextChange] <= tick) {
+            nextChange++;
+        }
+        actions = nextChange == 0 ? 0 : replay.changeMasks[nextChange - 1];
+    }
+
+    //Return true if every tick of the replay was simulated
+    public boolean isFinished() {
+        return tick >= replay.endTick;
+    }
+
+    //Return the last tick that was simulated
+    public long getTick() {
+        return tick;
+    }
+
+    //Return the game being driven by the replay
+    public TetrisEngine getEngine() {
+        return engine;
+    }
+
+    //Return the replay being played
+    public Replay getReplay() {
+        return replay;
+    }
+}
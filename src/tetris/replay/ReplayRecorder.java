@@ -0,0 +1,257 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Records the inputs of a game into a compact binary replay file.
+ *
+ * A game only depends on its seed, its game mode, the physics rate and the actions held on every physics update, so
+ * that is all a replay needs. Only the updates where the held actions change are written, each as a varint of the
+ * ticks since the last change followed by the new action mask. See Replay for the file format.
+ *
+ * The physics thread never touches the file. Changes are put into a fixed size ring buffer that is emptied by a
+ * background writer thread, and putting a change into it never waits. If the buffer is ever full, the change is
+ * dropped and the replay is marked as incomplete instead of stalling the game.
+ *
+ * The writer thread also plays a copy of the game from the recorded changes and writes a keyframe of its state every
+ * few seconds, which lets ReplayPlayer seek without simulating the whole game. A full 40 lines game, keyframes
+ * included, is a few kilobytes.
+ *
+ * Recording is off unless the game is started with --record (see Main). Replays are saved in .titres/replays in the
+ * home folder of the user, which keeps only the newest MAX_REPLAYS of them.
+ */
+package tetris.replay;
+
+import tetris.game.GameMode;
+import tetris.game.PlayerController;
+import tetris.game.TetrisEngine;
+import tetris.util.TickClock;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.locks.LockSupport;
+
+public class ReplayRecorder {
+    //Folder replays are saved in, inside the home folder of the user
+    private static final String REPLAY_FOLDER = ".titres" + File.separator + "replays";
+
+    //Most replays kept in the folder, the oldest ones are deleted when a new one is saved
+    public static final int MAX_REPLAYS = 50;
+
+    //Extension of replay files
+    private static final String EXTENSION = ".rpl";
+
+    //Size of the ring buffer, must be a power of two
+    private static final int BUFFER_SIZE = 4096;
+
+    //How long the writer thread sleeps when there is nothing to write
+    private static final long WRITER_SLEEP_NANOS = 5_000_000;
+
+    //Number of seconds between keyframes
+    private static final int KEYFRAME_SECONDS = 5;
+
+    //Ring buffer of changes, each stored as tick << 8 | mask
+    //Only the physics thread writes to it and only the writer thread reads from it
+    private final long[] buffer = new long[BUFFER_SIZE];
+
+    //Number of changes ever put into the buffer and ever taken out of it
+    //Each is only written by one thread, volatile makes the buffer contents visible to the other thread
+    private volatile long written;
+    private volatile long read;
+
+    //Set once a change had to be dropped because the buffer was full
+    private volatile boolean overflowed;
+
+    //Set by the physics thread once the game is over, with the tick it ended at
+    private volatile boolean finished;
+    private volatile long endTick;
+
+    //Last mask given to record, only used by the physics thread
+    private int lastMask;
+
+    //The file being written and the thread writing it
+    private final File file;
+    private final Thread writer;
+
+    //Copy of the game played by the writer thread to create keyframes, and the last tick it simulated
+    private TickClock simulationClock;
+    private TetrisEngine simulation;
+    private PlayerController simulationController;
+    private long simulationTick;
+    private int simulationActions;
+
+    //Buffer the keyframes are written to before they are copied to the file
+    private final ByteArrayOutputStream keyframe = new ByteArrayOutputStream();
+
+    //Tick of the last record written to the file
+    private long lastTick;
+
+    /**
+     * Starts recording a game. Should be created on the tick of the first physics update of the game.
+     *
+     * @param file The file to save the replay to
+     * @param gameMode The game mode
+     * @param seed The seed of the randomizer
+     * @param ticksPerSecond The number of physics updates per second
+     * @param startTick The tick of the first physics update of the game
+     */
+    public ReplayRecorder(File file, GameMode gameMode, long seed, int ticksPerSecond, long startTick) {
+        this.file = file;
+        writer = new Thread(() -> write(gameMode, seed, ticksPerSecond, startTick), "Replay writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return The folder replays are saved in, in the home folder of the user so that it doesn't depend on where the
+     * game was started from
+     */
+    public static File getReplayFolder() {
+        return new File(System.getProperty("user.home"), REPLAY_FOLDER);
+    }
+
+    /**
+     * Creates a file in the replay folder named after the game mode and the current time.
+     * The oldest replays are deleted so that the folder keeps at most MAX_REPLAYS of them, including the new one.
+     *
+     * @param gameMode The game mode
+     * @return The file to save a replay to
+     */
+    public static File newReplayFile(GameMode gameMode) {
+        File folder = getReplayFolder();
+        folder.mkdirs();
+        deleteOldReplays(folder, MAX_REPLAYS - 1);
+        return new File(folder, gameMode.name().toLowerCase() + "-" + System.currentTimeMillis() + EXTENSION);
+    }
+
+    // Deletes the oldest replays in a folder until at most the given number are left. Other files are left alone
+    private static void deleteOldReplays(File folder, int keep) {
+        File[] replays = folder.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (replays == null || replays.length <= keep) {
+            return;
+        }
+        Arrays.sort(replays, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < replays.length - keep; i++) {
+            if (!replays[i].delete()) {
+                System.err.println("Could not delete old replay " + replays[i]);
+            }
+        }
+    }
+
+    /**
+     * Records the actions held on a physics update. Called on the physics thread, never waits.
+     *
+     * @param tick The tick of the update
+     * @param mask The bitmask of the held actions
+     */
+    public void record(long tick, int mask) {
+        if (mask == lastMask || finished) { //Only changes are recorded
+            return;
+        }
+        lastMask = mask;
+
+        long index = written;
+        if (index - read >= BUFFER_SIZE) { //The writer thread fell behind, drop the change instead of waiting
+            overflowed = true;
+            return;
+        }
+        buffer[(int) index & (BUFFER_SIZE - 1)] = tick << 8 | mask;
+        written = index + 1;
+    }
+
+    /**
+     * Ends the recording. The writer thread writes the rest of the changes and closes the file.
+     * Calling it again does nothing.
+     *
+     * @param tick The tick the game ended at
+     */
+    public void finish(long tick) {
+        if (finished) {
+            return;
+        }
+        endTick = tick;
+        finished = true;
+        LockSupport.unpark(writer);
+    }
+
+    //Return true if a change had to be dropped
+    public boolean hasOverflowed() {
+        return overflowed;
+    }
+
+    //Return the file the replay is saved to
+    public File getFile() {
+        return file;
+    }
+
+    // Runs on the writer thread: writes the header, then the changes as they come, then the end
+    private void write(GameMode gameMode, long seed, int ticksPerSecond, long startTick) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.write(Replay.MAGIC);
+            out.writeByte(Replay.VERSION);
+            out.writeByte(gameMode.ordinal());
+            out.writeLong(seed);
+            Replay.writeVarint(out, ticksPerSecond);
+            Replay.writeVarint(out, startTick);
+
+            //The copy of the game starts the same way ReplayPlayer starts a replay
+            simulationClock = new TickClock(ticksPerSecond);
+            simulation = new TetrisEngine(gameMode, simulationClock, seed);
+            simulationController = new PlayerController(simulation);
+            simulationTick = startTick - 1;
+            simulationClock.setTicks(simulationTick);
+            lastTick = startTick;
+            long keyframeInterval = (long) ticksPerSecond * KEYFRAME_SECONDS;
+
+            while (true) {
+                //Read finished before emptying the buffer, so no change recorded before finishing is missed
+                boolean done = finished;
+                long index = read;
+                while (index < written) {
+                    long change = buffer[(int) index & (BUFFER_SIZE - 1)];
+                    long tick = change >>> 8;
+
+                    //The new actions are used from this tick on, so simulate up to the tick before it
+                    simulateTo(out, tick - 1, startTick, keyframeInterval);
+                    Replay.writeVarint(out, tick - lastTick);
+                    out.writeByte((int) change & 0xFF);
+                    lastTick = tick;
+                    simulationActions = (int) change & 0xFF;
+                    read = ++index;
+                }
+                if (done) {
+                    break;
+                }
+                LockSupport.parkNanos(WRITER_SLEEP_NANOS);
+            }
+
+            long end = Math.max(lastTick, endTick);
+            simulateTo(out, end, startTick, keyframeInterval);
+            Replay.writeVarint(out, end - lastTick);
+            out.writeByte(overflowed ? Replay.END_INCOMPLETE : Replay.END);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Simulates the copy of the game up to a tick, writing a keyframe every keyframeInterval ticks
+    private void simulateTo(DataOutputStream out, long tick, long startTick, long keyframeInterval) throws IOException {
+        while (simulationTick < tick) {
+            simulationTick++;
+            ReplayPlayer.simulateTick(simulationClock, simulation, simulationController, simulationActions);
+            if ((simulationTick - startTick + 1) % keyframeInterval == 0) {
+                keyframe.reset();
+                ReplayPlayer.writeKeyframe(new DataOutputStream(keyframe), simulation, simulationController);
+                Replay.writeVarint(out, simulationTick - lastTick);
+                out.writeByte(Replay.KEYFRAME);
+                Replay.writeVarint(out, keyframe.size());
+                keyframe.writeTo(out);
+                lastTick = simulationTick;
+            }
+        }
+    }
+}
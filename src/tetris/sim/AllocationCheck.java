@@ -0,0 +1,148 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Checks that playing a game doesn't create any objects once the JVM is warmed up.
+ *
+ * A game is played on a TetrisEngine with a fixed pattern of inputs: every tick the clock moves, the game updates, and
+ * the piece is moved, rotated or dropped, which goes through the same position probes as the game (canPlace, onGround,
+ * findDropHeight and the wall kicks). When the game ends it is restored to its start. After a warm up, the bytes the
+ * thread allocated over the measured ticks are read from the ThreadMXBean, and the check fails (exit status 1) if any
+ * were allocated.
+ *
+ * Usage: java tetris.sim.AllocationCheck [--ticks N] [--warmup N] [--seed N]
+ */
+package tetris.sim;
+
+import tetris.game.GameMode;
+import tetris.game.GameSnapshot;
+import tetris.game.TetrisEngine;
+import tetris.util.TickClock;
+
+import java.lang.management.ManagementFactory;
+
+public class AllocationCheck {
+    //Ticks between hard drops in the input pattern
+    private static final int HARD_DROP_TICKS = 40;
+
+    //The clock and the game that is played
+    private final TickClock clock;
+    private final TetrisEngine engine;
+
+    //The state of the game when it started, the game is put back into it when it ends
+    private final GameSnapshot start = new GameSnapshot();
+
+    //Number of ticks played, and number of games that ended
+    private long ticks;
+    private long games;
+
+    public AllocationCheck(long seed) {
+        clock = new TickClock(BatchSimulator.TICKS_PER_SECOND);
+        engine = new TetrisEngine(GameMode.FORTY_LINES, clock, seed);
+        engine.snapshot(start);
+    }
+
+    /**
+     * Plays a number of ticks.
+     *
+     * @param count The number of ticks to play
+     */
+    public void play(long count) {
+        for (long i = 0; i < count; i++) {
+            clock.tick();
+            engine.update();
+
+            //Cycle through every input, so every probe is used
+            switch ((int) (ticks % 8)) {
+                case 0:
+                    engine.moveLeft();
+                    break;
+                case 1:
+                    engine.rotateCW();
+                    break;
+                case 2:
+                    engine.moveRight();
+                    break;
+                case 3:
+                    engine.dropPiece();
+                    break;
+                case 4:
+                    engine.rotateCCW();
+                    break;
+                case 5:
+                    engine.moveRight();
+                    break;
+                case 6:
+                    engine.findDropHeight();
+                    break;
+                case 7:
+                    engine.moveLeft();
+                    break;
+            }
+            if (ticks % HARD_DROP_TICKS == HARD_DROP_TICKS - 1) {
+                engine.hardDrop();
+            }
+            ticks++;
+
+            if (engine.isDied() || engine.isObjectiveCompleted()) { //Start again, without creating a new game
+                engine.restore(start);
+                games++;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        long ticks = 1000000;
+        long warmup = 1000000; //Enough for the JIT to compile everything, which can allocate the first time
+        long seed = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--ticks":
+                    ticks = Long.parseLong(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Long.parseLong(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        //The allocated bytes of a thread are only available from the HotSpot version of the ThreadMXBean
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            System.err.println("This JVM can't measure allocated bytes");
+            System.exit(1);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.err.println("This JVM can't measure allocated bytes");
+            System.exit(1);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        AllocationCheck check = new AllocationCheck(seed);
+        check.play(warmup);
+
+        //Reading the allocated bytes can allocate itself, so measure that first and take it off
+        long overhead = -threads.getThreadAllocatedBytes(thread);
+        overhead += threads.getThreadAllocatedBytes(thread);
+
+        long games = check.games;
+        long before = threads.getThreadAllocatedBytes(thread);
+        check.play(ticks);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+        System.out.printf("%d ticks, %d games: %d bytes allocated (%.4f per tick)%n", ticks, check.games - games, allocated,
+                (double) allocated / ticks);
+        if (allocated > 0) {
+            System.out.println("FAILED, playing a game must not allocate");
+            System.exit(1);
+        }
+        System.out.println("ok");
+    }
+}
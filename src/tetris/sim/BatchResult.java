@@ -0,0 +1,103 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Totals of many simulated games.
+ *
+ * Every worker thread fills its own BatchResult, and they are merged once all the games are done, so no state is
+ * shared between threads while games are running.
+ */
+package tetris.sim;
+
+public class BatchResult {
+    //Number of games, and how many of them ended by dying or by completing the objective
+    private int games;
+    private int deaths;
+    private int completions;
+
+    //Totals over all the games
+    private long lines;
+    private long pieces;
+    private long ticks;
+
+    //Wall clock time the batch took in nanoseconds, set once the batch is done
+    private long elapsedNanos;
+
+    /**
+     * Adds a finished game to the totals.
+     *
+     * @param result The game to add
+     */
+    public void add(GameResult result) {
+        games++;
+        if (result.died) {
+            deaths++;
+        }
+        if (result.objectiveCompleted) {
+            completions++;
+        }
+        lines += result.lines;
+        pieces += result.pieces;
+        ticks += result.ticks;
+    }
+
+    /**
+     * Adds the totals of another batch to this one.
+     *
+     * @param other The batch to add
+     */
+    public void merge(BatchResult other) {
+        games += other.games;
+        deaths += other.deaths;
+        completions += other.completions;
+        lines += other.lines;
+        pieces += other.pieces;
+        ticks += other.ticks;
+    }
+
+    //Set the wall clock time the batch took
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public int getDeaths() {
+        return deaths;
+    }
+
+    public int getCompletions() {
+        return completions;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getPieces() {
+        return pieces;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    //Return the fraction of games that ended with the player dying
+    public double getDeathRate() {
+        return games == 0 ? 0 : (double) deaths / games;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = elapsedNanos / 1e9;
+        return String.format("games: %d, completed: %d, died: %d (death rate %.2f%%)%n", games, completions, deaths, 100 * getDeathRate())
+                + String.format("lines: %d (%.2f per game), pieces: %d (%.2f per game), ticks: %d (%.1f per game)%n",
+                lines, (double) lines / Math.max(games, 1), pieces, (double) pieces / Math.max(games, 1), ticks, (double) ticks / Math.max(games, 1))
+                + String.format("time: %.3f s, %.1f games/s, %.0f ticks/s", seconds, games / seconds, ticks / seconds);
+    }
+}
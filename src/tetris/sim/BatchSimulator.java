@@ -0,0 +1,153 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Plays many independent games at the same time on every core and adds up their results.
+ * Used for balancing and regression testing.
+ *
+ * Every game has its own engine, tick clock and input policy, and game i is always played with seed + i, so a batch
+ * gives the same totals no matter how many threads run it. Each worker thread plays every n-th game and keeps its
+ * own totals, which are only merged at the end, so the workers never share any mutable state.
+ *
+ * Usage: java tetris.sim.BatchSimulator [--games N] [--mode FORTY_LINES|BLITZ] [--threads N] [--seed N] [--max-ticks N]
+ */
+package tetris.sim;
+
+import tetris.game.GameMode;
+import tetris.game.TetrisEngine;
+import tetris.util.TickClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+public class BatchSimulator {
+    //Physics ticks per second, the same rate the game runs at
+    public static final int TICKS_PER_SECOND = 144;
+
+    //Printed when the arguments can't be parsed
+    private static final String USAGE = "Usage: java tetris.sim.BatchSimulator [--games N] [--mode FORTY_LINES|BLITZ]"
+            + " [--threads N] [--seed N] [--max-ticks N]";
+
+    //The game mode every game is played in
+    private final GameMode gameMode;
+
+    //Creates a new input policy for every game
+    private final Supplier<InputPolicy> policyFactory;
+
+    //Number of worker threads
+    private final int threads;
+
+    //Games are stopped after this many ticks, in case a policy never finishes
+    private final long maxTicks;
+
+    public BatchSimulator(GameMode gameMode, Supplier<InputPolicy> policyFactory, int threads, long maxTicks) {
+        this.gameMode = gameMode;
+        this.policyFactory = policyFactory;
+        this.threads = threads;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Plays one game from start to end.
+     *
+     * @param gameMode The game mode
+     * @param policy The input policy of the player
+     * @param seed The seed of the randomizer
+     * @param maxTicks The maximum number of ticks to play
+     * @return The result of the game
+     */
+    public static GameResult playGame(GameMode gameMode, InputPolicy policy, long seed, long maxTicks) {
+        TickClock clock = new TickClock(TICKS_PER_SECOND);
+        TetrisEngine engine = new TetrisEngine(gameMode, clock, seed);
+
+        while (!engine.isDied() && !engine.isObjectiveCompleted() && clock.getTicks() < maxTicks) {
+            //Same order as GuiTetris: the clock moves, the game updates, then the input is handled
+            clock.tick();
+            engine.update();
+            policy.act(engine);
+        }
+        return new GameResult(seed, engine.linesCleared, engine.getPiecesPlaced(), clock.getTicks(), engine.isDied(),
+                engine.isObjectiveCompleted(), engine.getFinalScore());
+    }
+
+    /**
+     * Plays a batch of games across all the worker threads.
+     *
+     * @param games The number of games to play
+     * @param seed The seed of the first game, game i uses seed + i
+     * @return The totals of every game
+     */
+    public BatchResult run(int games, long seed) throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            //Every worker plays the games worker, worker + threads, worker + 2 * threads...
+            List<Future<BatchResult>> workers = new ArrayList<>();
+            for (int worker = 0; worker < threads; worker++) {
+                final int first = worker;
+                workers.add(pool.submit(() -> {
+                    BatchResult result = new BatchResult();
+                    for (int game = first; game < games; game += threads) {
+                        result.add(playGame(gameMode, policyFactory.get(), seed + game, maxTicks));
+                    }
+                    return result;
+                }));
+            }
+
+            //Merge the totals of the workers
+            BatchResult total = new BatchResult();
+            for (Future<BatchResult> worker : workers) {
+                total.merge(worker.get());
+            }
+            total.setElapsedNanos(System.nanoTime() - start);
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 1000;
+        GameMode gameMode = GameMode.FORTY_LINES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        long maxTicks = 10L * 60 * TICKS_PER_SECOND; // 10 minutes
+
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) { //Every option is followed by its value
+                System.err.println("Option " + args[i] + " needs a value");
+                System.err.println(USAGE);
+                return;
+            }
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--mode":
+                    gameMode = GameMode.valueOf(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--max-ticks":
+                    maxTicks = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.err.println(USAGE);
+                    return;
+            }
+        }
+
+        System.out.printf("Playing %d %s games on %d threads%n", games, gameMode.getName(), threads);
+        BatchSimulator simulator = new BatchSimulator(gameMode, HeuristicPolicy::new, threads, maxTicks);
+        System.out.println(simulator.run(games, seed));
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * The outcome of one simulated game.
+ */
+package tetris.sim;
+
+public class GameResult {
+    //The seed the game was played with
+    public final long seed;
+
+    //Number of lines cleared and pieces placed
+    public final int lines;
+    public final int pieces;
+
+    //Number of physics ticks the game lasted
+    public final long ticks;
+
+    //How the game ended. If neither is true, the game hit the tick limit
+    public final boolean died;
+    public final boolean objectiveCompleted;
+
+    //The final score of the game (time in milliseconds for 40 lines, lines for blitz)
+    public final long finalScore;
+
+    public GameResult(long seed, int lines, int pieces, long ticks, boolean died, boolean objectiveCompleted, long finalScore) {
+        this.seed = seed;
+        this.lines = lines;
+        this.pieces = pieces;
+        this.ticks = ticks;
+        this.died = died;
+        this.objectiveCompleted = objectiveCompleted;
+        this.finalScore = finalScore;
+    }
+}
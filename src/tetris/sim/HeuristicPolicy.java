@@ -0,0 +1,136 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A simple bot that places every piece where a weighted score of the resulting board is the highest.
+ *
+ * The score uses the well known aggregate height, completed lines, holes and bumpiness features, with the weights from
+ * https://codemyroad.wordpress.com/2013/04/14/tetris-ai-the-near-perfect-player/
+ *
+ * Like a player, it presses one key per tick: it rotates the piece, then moves it to the chosen column, then hard
+ * drops it.
+ */
+package tetris.sim;
+
+import tetris.game.Board;
+import tetris.game.Piece;
+import tetris.game.PieceType;
+import tetris.game.TetrisEngine;
+
+public class HeuristicPolicy implements InputPolicy {
+    //Weights of the board features
+    private static final double HEIGHT_WEIGHT = -0.510066;
+    private static final double LINES_WEIGHT = 0.760666;
+    private static final double HOLES_WEIGHT = -0.35663;
+    private static final double BUMPINESS_WEIGHT = -0.184483;
+
+    //Board used to try every placement without changing the real board
+    private final Board scratch = new Board();
+
+    //Number of pieces placed when the target was chosen, used to notice a new piece
+    private int targetPiece = -1;
+
+    //The chosen rotation and center column of the current piece
+    private int targetRotation;
+    private int targetX;
+
+    @Override
+    public void act(TetrisEngine engine) {
+        if (engine.isDied() || engine.isObjectiveCompleted()) {
+            return;
+        }
+        Piece current = engine.current;
+
+        //A new piece has spawned, so choose where it goes
+        if (targetPiece != engine.getPiecesPlaced()) {
+            targetPiece = engine.getPiecesPlaced();
+            chooseTarget(engine);
+        }
+
+        //One input per tick: rotate, then move, then drop
+        if (current.getRotation() != targetRotation) {
+            int before = current.getRotation();
+            engine.rotateCW();
+            if (current.getRotation() == before) { //The rotation is blocked, drop it where it is
+                engine.hardDrop();
+            }
+        } else if (current.getCenterX() < targetX) {
+            int before = current.getCenterX();
+            engine.moveRight();
+            if (current.getCenterX() == before) { //The path is blocked, drop it where it is
+                engine.hardDrop();
+            }
+        } else if (current.getCenterX() > targetX) {
+            int before = current.getCenterX();
+            engine.moveLeft();
+            if (current.getCenterX() == before) {
+                engine.hardDrop();
+            }
+        } else {
+            engine.hardDrop();
+        }
+    }
+
+    // Tries every rotation and column of the current piece and keeps the best one
+    private void chooseTarget(TetrisEngine engine) {
+        Piece current = engine.current;
+        PieceType type = current.getType();
+        int rotations = type == PieceType.O ? 1 : PieceType.ROTATION_COUNT; //The O piece never rotates
+
+        double bestScore = Double.NEGATIVE_INFINITY;
+        targetRotation = current.getRotation();
+        targetX = current.getCenterX();
+
+        for (int rotation = 0; rotation < rotations; rotation++) {
+            for (int x = -2; x < Board.COLUMNS + 2; x++) {
+                if (!engine.canPlace(type, rotation, x, current.getCenterY())) {
+                    continue;
+                }
+                int y = engine.board.findDropHeight(type, rotation, x, current.getCenterY());
+
+                //Place the piece on a copy of the board and score the result
+                scratch.copyFrom(engine.board);
+                scratch.place(PieceType.getShape(type, rotation), type, x - 1, y - 1);
+                int lines = scratch.clearLines();
+                double score = score(scratch, lines);
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    targetRotation = rotation;
+                    targetX = x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scores a board, higher is better.
+     *
+     * @param board The board to score
+     * @param lines The number of lines the placement cleared
+     * @return The score of the board
+     */
+    private static double score(Board board, int lines) {
+        int aggregateHeight = 0;
+        int holes = 0;
+        int bumpiness = 0;
+        int previousHeight = -1;
+
+        for (int column = 0; column < Board.COLUMNS; column++) {
+            int top = board.getHeight(column);
+            int height = Board.ROWS - top;
+            aggregateHeight += height;
+            if (previousHeight >= 0) {
+                bumpiness += Math.abs(height - previousHeight);
+            }
+            previousHeight = height;
+
+            //Every empty square below the top of a column is a hole
+            for (int row = top + 1; row < Board.ROWS; row++) {
+                if (!board.isFilled(row, column)) {
+                    holes++;
+                }
+            }
+        }
+        return HEIGHT_WEIGHT * aggregateHeight + LINES_WEIGHT * lines + HOLES_WEIGHT * holes + BUMPINESS_WEIGHT * bumpiness;
+    }
+}
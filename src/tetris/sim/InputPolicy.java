@@ -0,0 +1,21 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Decides the inputs of a simulated player.
+ *
+ * A policy is called once every physics tick, right after the game has been updated (the same order GuiTetris uses
+ * for keyboard input), and calls the move methods of the engine like a player would press keys.
+ * A policy is only ever used by one game, so it may keep state between ticks.
+ */
+package tetris.sim;
+
+import tetris.game.TetrisEngine;
+
+public interface InputPolicy {
+    /**
+     * Performs the inputs for one physics tick.
+     *
+     * @param engine The game being played
+     */
+    void act(TetrisEngine engine);
+}
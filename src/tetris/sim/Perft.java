@@ -0,0 +1,412 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Perft ("performance test") for the rules engine, the same idea as in chess engines.
+ * Starting from an empty board and a seeded piece queue, every reachable placement of every piece is played to a
+ * given depth and the leaf nodes are counted.
+ *
+ * Placements are found by MoveGenerator, and every placement is then played on a TetrisEngine: the engine is restored
+ * to the position, the inputs of the path are sent to its move, rotate, soft drop and hold methods, and the piece is
+ * locked with setPiece. If the engine doesn't end up at the placement, the generator and the engine disagree about the
+ * rules and the search stops with an exception. The node counts therefore only change when the rules change, so the
+ * known counts below double as a regression test (--verify) of the engine's legality checks, rotations and locking,
+ * and the nodes per second give one number to compare engine optimizations with.
+ *
+ * Like in chess, the last depth is counted in bulk: its placements are counted but not played.
+ *
+ * With a transposition table, the node count below a position is stored under the Zobrist hash of its board, held
+ * piece and upcoming pieces, so positions reached in different orders are only searched once. The counts don't
+ * change, only the time.
+ *
+ * The search can also start later in the piece queue (--skip), for example to get two pieces of the same type in a row
+ * at the end of a bag.
+ *
+ * Usage: java tetris.sim.Perft [--depth N] [--seed N] [--skip N] [--hold true|false] [--threads N] [--tt MEGABYTES]
+ *        [--verify]
+ */
+package tetris.sim;
+
+import tetris.game.Board;
+import tetris.game.GameMode;
+import tetris.game.GameSnapshot;
+import tetris.game.MoveGenerator;
+import tetris.game.Piece;
+import tetris.game.PieceType;
+import tetris.game.TetrisEngine;
+import tetris.game.Zobrist;
+import tetris.game.randomizer.Randomizer;
+import tetris.game.randomizer.RandomizerSevenBag;
+import tetris.util.TickClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class Perft {
+    //Known node counts: seed, hold (1 or 0), pieces skipped, then the node counts of depth 1, 2, 3...
+    private static final long[][] KNOWN = {
+            {0, 0, 0, 9, 306, 10762, 389130},
+            {0, 1, 0, 43, 2108, 118265},
+            {1, 0, 0, 34, 585, 21024, 771729},
+            {1, 1, 0, 51, 2950, 189824},
+            {2, 0, 6, 34, 1190, 42684},
+            {2, 1, 6, 68, 4746, 255168}, //Two L pieces in a row across a bag
+    };
+
+    //Ticks per second of the clock of the engine, the clock never ticks so it doesn't matter
+    private static final int TICKS_PER_SECOND = 60;
+
+    //The seed of the randomizer, the number of its pieces that are skipped, and the pieces in the order they spawn,
+    //shared by every search
+    private final long seed;
+    private final int skip;
+    private final PieceType[] queue;
+
+    //True if the hold piece can be used
+    private final boolean useHold;
+
+    //The engine every placement is played on
+    private final TetrisEngine engine;
+
+    //State of the engine before the piece of every ply is placed, and the move generator of every ply
+    //Every ply has its own, so nothing is created while searching
+    private final GameSnapshot[] snapshots;
+    private final MoveGenerator[] generators;
+
+    //Inputs of the path of the placement being played
+    private final byte[] path = new byte[MoveGenerator.MAX_PATH_LENGTH];
+
+    //Table of known node counts shared by every search, null if it is not used
+    private TranspositionTable table;
+
+    //Number of node counts found in the table by this search
+    private long tableHits;
+
+    /**
+     * Creates a perft search with the pieces of a seeded 7-bag randomizer.
+     *
+     * @param seed The seed of the randomizer
+     * @param maxDepth The deepest depth that will be searched
+     * @param useHold True if the hold piece can be used
+     */
+    public Perft(long seed, int maxDepth, boolean useHold) {
+        this(seed, 0, maxDepth, useHold);
+    }
+
+    /**
+     * Creates a perft search with the pieces of a seeded 7-bag randomizer, starting later in the queue.
+     *
+     * @param seed The seed of the randomizer
+     * @param skip The number of pieces of the randomizer that are skipped before the first piece
+     * @param maxDepth The deepest depth that will be searched
+     * @param useHold True if the hold piece can be used
+     */
+    public Perft(long seed, int skip, int maxDepth, boolean useHold) {
+        this(seed, skip, createQueue(seed, skip, maxDepth), maxDepth, useHold);
+    }
+
+    private Perft(long seed, int skip, PieceType[] queue, int maxDepth, boolean useHold) {
+        this.seed = seed;
+        this.skip = skip;
+        this.queue = queue;
+        this.useHold = useHold;
+        //The engine uses the same randomizer as the queue, so it spawns the same pieces
+        engine = new TetrisEngine(GameMode.FORTY_LINES, new TickClock(TICKS_PER_SECOND), seed);
+        for (int i = 0; i < skip; i++) {
+            engine.spawnPiece();
+        }
+        snapshots = new GameSnapshot[maxDepth + 1];
+        generators = new MoveGenerator[maxDepth + 1];
+        for (int i = 0; i <= maxDepth; i++) {
+            snapshots[i] = new GameSnapshot();
+            generators[i] = new MoveGenerator();
+        }
+        engine.snapshot(snapshots[0]); //The first position is the new game
+    }
+
+    // Every ply uses at most two pieces (when holding for the first time), so the queue needs twice the depth
+    private static PieceType[] createQueue(long seed, int skip, int maxDepth) {
+        Randomizer randomizer = new RandomizerSevenBag(seed);
+        for (int i = 0; i < skip; i++) {
+            randomizer.popNextPiece();
+        }
+        PieceType[] queue = new PieceType[2 * maxDepth + 1];
+        for (int i = 0; i < queue.length; i++) {
+            queue[i] = randomizer.popNextPiece();
+        }
+        return queue;
+    }
+
+    /**
+     * Sets the transposition table used by the search.
+     *
+     * @param table The table, or null to not use one
+     */
+    public void setTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    //Return the number of node counts found in the transposition table by count (not countParallel)
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    /**
+     * Counts the leaf nodes from an empty board on this thread.
+     *
+     * @param depth The number of pieces to play
+     * @return The number of leaf nodes
+     */
+    public long count(int depth) {
+        return count(0, depth, 0, null);
+    }
+
+    /**
+     * Counts the leaf nodes from an empty board, with every placement of the first piece searched as a separate task
+     * on a thread pool.
+     *
+     * @param depth The number of pieces to play
+     * @param threads The number of worker threads
+     * @return The number of leaf nodes
+     */
+    public long countParallel(int depth, int threads) throws InterruptedException, ExecutionException {
+        if (depth <= 1) {
+            return count(depth);
+        }
+        engine.restore(snapshots[0]);
+        MoveGenerator generator = generators[0];
+        int placements = generator.generate(engine.board, queue[0], holdPiece(0, null), true);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> tasks = new ArrayList<>();
+            for (int i = 0; i < placements; i++) {
+                //Every task has its own engine, starting from the position after the first piece
+                Perft task = new Perft(seed, skip, queue, depth - 1, useHold);
+                task.table = table;
+                play(0, generator, i, task.snapshots[0]);
+                int index = nextIndex(0, null, generator.usesHold(i));
+                PieceType hold = nextHold(0, null, generator.usesHold(i));
+                tasks.add(pool.submit(() -> task.count(0, depth - 1, index, hold)));
+            }
+
+            long nodes = 0;
+            for (Future<Long> task : tasks) {
+                nodes += task.get();
+            }
+            return nodes;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Counts the leaf nodes below a position.
+     *
+     * @param ply The ply of the position, snapshots[ply] is its state
+     * @param depth The number of pieces left to play
+     * @param index The index of the current piece in the queue
+     * @param hold The held piece, null if nothing is held
+     * @return The number of leaf nodes
+     */
+    private long count(int ply, int depth, int index, PieceType hold) {
+        if (depth == 0) {
+            return 1;
+        }
+        engine.restore(snapshots[ply]);
+        Board board = engine.board;
+        MoveGenerator generator = generators[ply];
+        int placements = generator.generate(board, queue[index], holdPiece(index, hold), hold == null);
+        if (depth == 1) { //Bulk count the last depth
+            return placements;
+        }
+
+        long key = 0;
+        if (table != null) {
+            key = hash(board, depth, index, hold);
+            long known = table.probe(key, depth);
+            if (known != TranspositionTable.MISS) {
+                tableHits++;
+                return known;
+            }
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < placements; i++) {
+            play(ply, generator, i, snapshots[ply + 1]);
+            boolean usesHold = generator.usesHold(i);
+            nodes += count(ply + 1, depth - 1, nextIndex(index, hold, usesHold), nextHold(index, hold, usesHold));
+        }
+        if (table != null) {
+            table.store(key, depth, nodes);
+        }
+        return nodes;
+    }
+
+    /**
+     * Hashes everything the node count below a position depends on: the board, the held piece and the pieces that can
+     * still be played (depth + 1 of them, holding for the first time uses one extra).
+     */
+    private long hash(Board board, int depth, int index, PieceType hold) {
+        long hash = board.getHash() ^ Zobrist.hold(hold);
+        int pieces = Math.min(depth + 1, Zobrist.QUEUE_DEPTH);
+        for (int i = 0; i < pieces; i++) {
+            hash ^= Zobrist.queue(i, queue[index + i]);
+        }
+        if (depth + 1 > Zobrist.QUEUE_DEPTH) { //Not every piece has a key, so tell apart positions in the queue
+            hash ^= (index + 1) * 0x9E3779B97F4A7C15L;
+        }
+        return hash;
+    }
+
+    /**
+     * Plays a placement on the engine from the position of a ply, and saves the position after it.
+     * The inputs of the path are sent to the engine like a player would, then the piece is locked. The piece is already
+     * on the ground, so locking it is what a hard drop does.
+     */
+    private void play(int ply, MoveGenerator generator, int placement, GameSnapshot child) {
+        engine.restore(snapshots[ply]);
+        int length = generator.getPath(placement, path);
+        for (int i = 0; i < length; i++) {
+            switch (path[i]) {
+                case MoveGenerator.LEFT:
+                    engine.moveLeft();
+                    break;
+                case MoveGenerator.RIGHT:
+                    engine.moveRight();
+                    break;
+                case MoveGenerator.ROTATE_CW:
+                    engine.rotateCW();
+                    break;
+                case MoveGenerator.ROTATE_CCW:
+                    engine.rotateCCW();
+                    break;
+                case MoveGenerator.SOFT_DROP:
+                    engine.dropPiece();
+                    break;
+                case MoveGenerator.HOLD:
+                    engine.holdPiece();
+                    break;
+            }
+        }
+
+        //The engine must have followed the path to the placement
+        Piece piece = engine.current;
+        if (piece.getType() != generator.getType(placement) || piece.getRotation() != generator.getRotation(placement)
+                || piece.getCenterX() != generator.getX(placement) || piece.getCenterY() != generator.getY(placement)
+                || !engine.onGround()) {
+            throw new IllegalStateException("The engine didn't reach placement " + placement + " at ply " + ply + ": "
+                    + generator.getType(placement) + " rotation " + generator.getRotation(placement) + " at ("
+                    + generator.getX(placement) + ", " + generator.getY(placement) + ")");
+        }
+
+        engine.setPiece();
+        engine.snapshot(child);
+    }
+
+    // The piece that is played after holding: the held piece, or the next piece if nothing is held yet
+    private PieceType holdPiece(int index, PieceType hold) {
+        if (!useHold) {
+            return null;
+        }
+        return hold == null ? queue[index + 1] : hold;
+    }
+
+    // Index of the next current piece, holding for the first time uses up two pieces
+    private static int nextIndex(int index, PieceType hold, boolean usesHold) {
+        return usesHold && hold == null ? index + 2 : index + 1;
+    }
+
+    // The held piece after a placement, the current piece is held when the hold piece is used
+    private PieceType nextHold(int index, PieceType hold, boolean usesHold) {
+        return usesHold ? queue[index] : hold;
+    }
+
+    // Checks every known node count, returns false if any of them is wrong
+    private static boolean verify() {
+        boolean passed = true;
+        for (long[] known : KNOWN) {
+            long seed = known[0];
+            boolean hold = known[1] == 1;
+            int skip = (int) known[2];
+            int maxDepth = known.length - 3;
+            Perft perft = new Perft(seed, skip, maxDepth, hold);
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                long nodes = perft.count(depth);
+                boolean correct = nodes == known[depth + 2];
+                passed &= correct;
+                System.out.printf("seed %d hold %-5b skip %d depth %d: %12d %s%n", seed, hold, skip, depth, nodes,
+                        correct ? "ok" : "FAILED, expected " + known[depth + 2]);
+            }
+        }
+        return passed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int depth = 3;
+        long seed = 0;
+        int skip = 0;
+        boolean hold = true;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int tableMegabytes = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--skip":
+                    skip = Integer.parseInt(args[++i]);
+                    break;
+                case "--hold":
+                    hold = Boolean.parseBoolean(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--tt":
+                    tableMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                case "--verify":
+                    if (!verify()) {
+                        System.exit(1);
+                    }
+                    return;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        Perft perft = new Perft(seed, skip, depth, hold);
+        TranspositionTable table = tableMegabytes > 0 ? new TranspositionTable(tableMegabytes) : null;
+        perft.setTable(table);
+        System.out.printf("Perft seed %d skip %d hold %b%s%n", seed, skip, hold, table == null ? "" : ", " + tableMegabytes + " MB transposition table");
+        for (int d = 1; d <= depth; d++) {
+            if (table != null) { //Every depth starts with an empty table, so the times can be compared
+                table.clear();
+            }
+            long start = System.nanoTime();
+            long hits = perft.getTableHits();
+            long nodes = perft.count(d);
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("depth %d: %12d nodes %10.1f ms %12.0f nodes/s", d, nodes, elapsed / 1e6, nodes * 1e9 / elapsed);
+            System.out.println(table == null ? "" : String.format(" %10d table hits", perft.getTableHits() - hits));
+        }
+
+        if (table != null) {
+            table.clear();
+        }
+        long start = System.nanoTime();
+        long nodes = perft.countParallel(depth, threads);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("depth %d on %d threads: %12d nodes %10.1f ms %12.0f nodes/s%n", depth, threads, nodes,
+                elapsed / 1e6, nodes * 1e9 / elapsed);
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A fixed size hash table of search results keyed by Zobrist hashes, shared by any number of threads without locks.
+ *
+ * The table is split into buckets of two entries. The first entry keeps the result of the deepest search that was
+ * stored in the bucket, the second entry is always replaced. This keeps the expensive results while still making room
+ * for new ones.
+ *
+ * Every entry is two longs: the key XORed with the data, and the data. Two threads writing the same entry at the same
+ * time can leave the two longs from different writes, but then the key no longer matches the data and the entry is
+ * simply a miss. This is the lockless hashing trick used by chess engines, so no locks or compare-and-swap are needed.
+ */
+package tetris.sim;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class TranspositionTable {
+    //Returned by probe when the table doesn't have the result
+    public static final long MISS = -1;
+
+    //Number of bits of the data used for the depth, the rest is the value
+    private static final int DEPTH_BITS = 8;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+    //Every bucket is 2 entries of 2 longs
+    private static final int LONGS_PER_BUCKET = 4;
+
+    //The entries, and the mask that turns a hash into a bucket index
+    private final AtomicLongArray table;
+    private final int bucketMask;
+
+    /**
+     * Creates a table that uses about the given amount of memory.
+     *
+     * @param megabytes The size of the table in megabytes
+     */
+    public TranspositionTable(int megabytes) {
+        long buckets = Math.max(1, (long) megabytes * 1024 * 1024 / (LONGS_PER_BUCKET * Long.BYTES));
+        int bucketCount = (int) Long.highestOneBit(Math.min(buckets, Integer.MAX_VALUE / LONGS_PER_BUCKET));
+        table = new AtomicLongArray(bucketCount * LONGS_PER_BUCKET);
+        bucketMask = bucketCount - 1;
+    }
+
+    /**
+     * Looks up the result stored for a key and depth.
+     *
+     * @param key The Zobrist hash of the state
+     * @param depth The depth the result was searched to
+     * @return The stored value, or MISS
+     */
+    public long probe(long key, int depth) {
+        int index = bucket(key);
+        for (int entry = index; entry < index + LONGS_PER_BUCKET; entry += 2) {
+            long data = table.get(entry + 1);
+            if ((table.get(entry) ^ data) == key && (data & DEPTH_MASK) == depth) {
+                return data >>> DEPTH_BITS;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Stores a result. It goes into the depth preferred entry if it is at least as deep as the result there, otherwise
+     * into the always replace entry.
+     *
+     * @param key The Zobrist hash of the state
+     * @param depth The depth the result was searched to, from 0 to 255
+     * @param value The value to store, must fit in 56 bits and not be negative
+     */
+    public void store(long key, int depth, long value) {
+        int index = bucket(key);
+        long data = value << DEPTH_BITS | depth;
+        long deepData = table.get(index + 1);
+        boolean sameKey = (table.get(index) ^ deepData) == key;
+        int entry = sameKey || depth >= (deepData & DEPTH_MASK) ? index : index + 2;
+        table.set(entry + 1, data);
+        table.set(entry, key ^ data);
+    }
+
+    /**
+     * Removes every result.
+     */
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, 0);
+        }
+    }
+
+    // Index of the first long of the bucket of a key
+    private int bucket(long key) {
+        //The low bits of the key pick the bucket, they are as random as any other bits of a Zobrist hash
+        return ((int) key & bucketMask) * LONGS_PER_BUCKET;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * The image that every frame of the game is drawn on before it is scaled onto the screen.
+ *
+ * The image is created once and reused for every frame. When the graphics card can hold it, it is a VolatileImage,
+ * so drawing on it and scaling it onto the screen are done by the graphics card. The contents of a VolatileImage can
+ * be lost at any time (for example when another program takes the screen), so after drawing a frame, contentsLost()
+ * must be checked and the frame drawn again if it returns true. When acceleration is unavailable, a BufferedImage is
+ * used instead, which is never lost.
+ */
+package tetris.util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+public class BackBuffer {
+    //Size of the image
+    private final int width, height;
+
+    //The image, only one of them is used
+    private VolatileImage volatileImage;
+    private BufferedImage bufferedImage;
+
+    /**
+     * Creates a back buffer. The image itself is created when the first frame is drawn.
+     *
+     * @param width The width of the image
+     * @param height The height of the image
+     */
+    public BackBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Gets a graphics object to draw a frame on. The image is created or restored first if needed.
+     *
+     * @param config The graphics configuration of the screen, or null if unknown
+     * @return The graphics object, which must be disposed once the frame is drawn
+     */
+    public Graphics2D createGraphics(GraphicsConfiguration config) {
+        if (config == null) {
+            config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        if (bufferedImage == null) {
+            //Restores the contents of the image, or creates a new one if the screen changed
+            if (volatileImage == null || volatileImage.validate(config) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (volatileImage != null) {
+                    volatileImage.flush();
+                }
+                volatileImage = config.createCompatibleVolatileImage(width, height);
+                if (!volatileImage.getCapabilities().isAccelerated()) { //No point in a volatile image, so use a normal one
+                    volatileImage.flush();
+                    volatileImage = null;
+                    bufferedImage = config.createCompatibleImage(width, height);
+                }
+            }
+        }
+        return (Graphics2D) getImage().getGraphics();
+    }
+
+    /**
+     * @return True if the contents of the image were lost since createGraphics, so the frame must be drawn again
+     */
+    public boolean contentsLost() {
+        return volatileImage != null && volatileImage.contentsLost();
+    }
+
+    /**
+     * @return The image
+     */
+    public Image getImage() {
+        return volatileImage != null ? volatileImage : bufferedImage;
+    }
+
+    /**
+     * @return True if the image is held by the graphics card
+     */
+    public boolean isAccelerated() {
+        return volatileImage != null;
+    }
+}
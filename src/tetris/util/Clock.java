@@ -0,0 +1,20 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A source of time for timers and the game engine.
+ *
+ * The real-time clock is used by the menus. Games use a TickClock instead, so that their timing only depends on the
+ * number of physics updates that have happened and can be reproduced or simulated faster than real time.
+ */
+package tetris.util;
+
+public interface Clock {
+    //Clock that follows the real time of the computer
+    Clock SYSTEM = System::nanoTime;
+
+    /**
+     * Returns the current time of the clock in nanoseconds.
+     * Like System.nanoTime(), only the difference between two values is meaningful.
+     */
+    long nanoTime();
+}
@@ -6,6 +6,10 @@
  */
 package tetris.util;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public class FrameTimer {
     //Intended length of the timer in seconds
     private long length;
@@ -16,9 +20,18 @@ public class FrameTimer {
     //Is the timer disabled?
     private boolean isDisabled;
 
-    //Constructor to initialize the timer
+    //The clock that the timer measures time with
+    private final Clock clock;
+
+    //Constructor to initialize the timer using the real time
     public FrameTimer(double length) {
-        this.startTime = System.nanoTime(); //The time that the timer started
+        this(length, Clock.SYSTEM);
+    }
+
+    //Constructor to initialize the timer using the given clock
+    public FrameTimer(double length, Clock clock) {
+        this.clock = clock;
+        this.startTime = clock.nanoTime(); //The time that the timer started
         this.length = (long)(length*1e9); //Length of the timer in nanoseconds
         this.isDisabled = false; //The timer is not disabled
     }
@@ -28,14 +41,14 @@ public class FrameTimer {
      * If it is disabled, the timer is never up.
      */
     public boolean isDone() {
-        return !isDisabled && System.nanoTime() - startTime > length;
+        return !isDisabled && clock.nanoTime() - startTime > length;
     }
 
     /**
      * Returns the time elapsed in nanoseconds
      */
     public long timeElapsed() {
-        return System.nanoTime() - startTime;
+        return clock.nanoTime() - startTime;
     }
 
     /**
@@ -43,7 +56,7 @@ public class FrameTimer {
      */
     public void reset() {
         isDisabled = false;
-        startTime = System.nanoTime(); //The time that the timer started
+        startTime = clock.nanoTime(); //The time that the timer started
     }
 
     //Return the length of the timer in seconds
@@ -64,7 +77,37 @@ public class FrameTimer {
     //Return the progress of the timer as a percentage
     public double getProgress() {
         //If the percentage is over 100%, return 100% (happens when the timer is done and this method is called)
-        return Math.min((double)(System.nanoTime() - startTime) / (double)length, 1);
+        return Math.min((double)(clock.nanoTime() - startTime) / (double)length, 1);
+    }
+
+    //Return the time that the timer started in nanoseconds, used to take a snapshot of the timer
+    public long getStartTime() {
+        return startTime;
     }
-}
 
+    //Return the length of the timer in nanoseconds
+    public long getLengthNanos() {
+        return length;
+    }
+
+    //Restore a snapshot of the timer
+    public void restore(long length, long startTime, boolean isDisabled) {
+        this.length = length;
+        this.startTime = startTime;
+        this.isDisabled = isDisabled;
+    }
+
+    //Write the length, start time and disabled state of the timer, used to save the state of a game
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(length);
+        out.writeLong(startTime);
+        out.writeBoolean(isDisabled);
+    }
+
+    //Read a state written by writeState
+    public void readState(DataInput in) throws IOException {
+        length = in.readLong();
+        startTime = in.readLong();
+        isDisabled = in.readBoolean();
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Histogram of durations in nanoseconds, used to measure input latency (see LatencyStats).
+ *
+ * The buckets are log-linear: every power of two is split into SUB_BUCKETS equal buckets, so every value is kept with
+ * an error of at most 1/SUB_BUCKETS (about 6%) from 1 ns to over a minute, in a fixed array of counts. Recording a
+ * value is a few shifts and one atomic add, and never allocates, so it can be done from any thread on every key press.
+ */
+package tetris.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+    //Number of bits of a value kept in its bucket, and the number of buckets per power of two
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    //Values up to 2^MAX_BITS - 1 ns (about 68 seconds) get their own bucket, larger ones go in the last bucket
+    private static final int MAX_BITS = 36;
+
+    //Number of values in every bucket
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+
+    //Number of values recorded, and the largest one
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds. Negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+
+        long oldMax = max.get();
+        while (value > oldMax && !max.compareAndSet(oldMax, value)) {
+            oldMax = max.get();
+        }
+    }
+
+    // Returns the bucket of a value. Values under SUB_BUCKETS have their own bucket; larger ones keep their highest bits
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value); //Index of the highest bit, at least SUB_BUCKET_BITS
+        if (exponent >= MAX_BITS) {
+            return (MAX_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // Returns the middle of the values of a bucket
+    private static long valueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowest = (1L << exponent) + (bucket % SUB_BUCKETS) * width;
+        return lowest + width / 2;
+    }
+
+    /**
+     * Finds the value that the given fraction of the values are at most, within the error of the buckets.
+     *
+     * @param fraction The fraction of values, between 0 and 1 (0.99 for the 99th percentile)
+     * @return The percentile in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentile(double fraction) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total)); //How many values have to be at or under it
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(valueOf(i), max.get()); //The middle of the bucket can be over every value in it
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return The number of durations recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return The largest duration recorded, in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Removes every recorded duration.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+}
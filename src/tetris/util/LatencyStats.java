@@ -0,0 +1,161 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Measures the input latency of every game action, from the key press to the screen.
+ *
+ * A press goes through three points, each measured with System.nanoTime():
+ *  1. KeyboardInput receives the key event on the AWT thread (the time is kept in the KeyEventQueue)
+ *  2. The physics update that gives it to the game reads it (GuiTetris, on the game thread)
+ *  3. The first GamePanel.paint that started after that update was published finishes, which is the first frame that
+ *     can show it. A paint that started earlier draws the snapshot of the update before, so it doesn't count
+ *
+ * For every action, the time from 1 to 2 and from 1 to 3 is recorded in a LatencyHistogram. Only the first press of
+ * an action waiting for a frame is measured up to the screen; later presses before that frame are only measured up
+ * to the physics update. Nothing is allocated per press, so measuring doesn't change the latency being measured.
+ *
+ * The results are shown by the F3 overlay (see GamePanel), and printed when the game exits if the overlay was shown
+ * or the game was started with -Dtitres.latency=true.
+ */
+package tetris.util;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyStats {
+    //Names of the actions, in the order of the bits of the action mask (see PlayerController)
+    public static final String[] ACTION_NAMES = {"LEFT", "RIGHT", "SOFT DROP", "HARD DROP", "ROTATE CW", "ROTATE CCW", "HOLD"};
+
+    //Time from the key event to the physics update that used it, for every action
+    private final LatencyHistogram[] toTick = new LatencyHistogram[ACTION_NAMES.length];
+    //Time from the key event to the end of the first frame drawn after that update, for every action
+    private final LatencyHistogram[] toScreen = new LatencyHistogram[ACTION_NAMES.length];
+
+    //For every action, the time of the key event used by the update that is running (0 if none), only used by the
+    //game thread. It waits for a frame once the update is published
+    private final long[] appliedEvent = new long[ACTION_NAMES.length];
+
+    //For every action, the time of the key event waiting for a frame (0 if none) and when the update that used it was
+    //published. Only the game thread sets a pending event and only the paint thread clears it
+    private final AtomicLongArray pendingEvent = new AtomicLongArray(ACTION_NAMES.length);
+    private final AtomicLongArray pendingTick = new AtomicLongArray(ACTION_NAMES.length);
+
+    public LatencyStats() {
+        for (int i = 0; i < ACTION_NAMES.length; i++) {
+            toTick[i] = new LatencyHistogram();
+            toScreen[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records that a physics update used a key press. Called by the game thread.
+     * The press is only measured up to the screen once the update is published, see updatePublished.
+     *
+     * @param action The index of the action, the bit number in the action mask
+     * @param eventTime The System.nanoTime() when the key event was received
+     * @param tickTime The System.nanoTime() of the physics update
+     */
+    public void inputApplied(int action, long eventTime, long tickTime) {
+        toTick[action].record(tickTime - eventTime);
+        appliedEvent[action] = eventTime;
+    }
+
+    /**
+     * Records that the physics update that used the last presses was published, so frames that start drawing from now
+     * on show them. Called by the game thread at the end of every update.
+     *
+     * @param publishTime The System.nanoTime() after the update was published
+     */
+    public void updatePublished(long publishTime) {
+        for (int i = 0; i < ACTION_NAMES.length; i++) {
+            long eventTime = appliedEvent[i];
+            if (eventTime == 0) {
+                continue;
+            }
+            appliedEvent[i] = 0;
+            if (pendingEvent.get(i) == 0) { //Nothing waiting for a frame, so this one is measured up to the screen
+                pendingTick.set(i, publishTime);
+                pendingEvent.set(i, eventTime); //Set last, so the paint thread sees both times
+            }
+        }
+    }
+
+    /**
+     * Records that a frame was drawn on the screen. Called by the paint thread.
+     *
+     * @param paintStart The System.nanoTime() when drawing the frame started
+     * @param paintEnd The System.nanoTime() when the frame was given to the screen
+     */
+    public void framePresented(long paintStart, long paintEnd) {
+        for (int i = 0; i < ACTION_NAMES.length; i++) {
+            long eventTime = pendingEvent.get(i);
+            // Only updates that finished before the frame started drawing are in it
+            if (eventTime != 0 && pendingTick.get(i) <= paintStart) {
+                toScreen[i].record(paintEnd - eventTime);
+                pendingEvent.set(i, 0);
+            }
+        }
+    }
+
+    /**
+     * @param action The index of the action
+     * @return The time from key event to physics update of the action
+     */
+    public LatencyHistogram getToTick(int action) {
+        return toTick[action];
+    }
+
+    /**
+     * @param action The index of the action
+     * @return The time from key event to the screen of the action
+     */
+    public LatencyHistogram getToScreen(int action) {
+        return toScreen[action];
+    }
+
+    /**
+     * Removes every measurement.
+     */
+    public void reset() {
+        for (int i = 0; i < ACTION_NAMES.length; i++) {
+            toTick[i].reset();
+            toScreen[i].reset();
+            appliedEvent[i] = 0;
+            pendingEvent.set(i, 0);
+        }
+    }
+
+    /**
+     * Returns one line of the report, with the p50, p99 and max of a histogram in milliseconds.
+     *
+     * @param name The name of the line
+     * @param histogram The histogram
+     * @return The line
+     */
+    public static String formatLine(String name, LatencyHistogram histogram) {
+        return String.format("%-22s %7.2f %7.2f %7.2f %7d", name, histogram.getPercentile(0.5) / 1e6,
+                histogram.getPercentile(0.99) / 1e6, histogram.getMax() / 1e6, histogram.getCount());
+    }
+
+    /**
+     * @return The header of the lines returned by formatLine
+     */
+    public static String formatHeader() {
+        return String.format("%-22s %7s %7s %7s %7s", "LATENCY (ms)", "p50", "p99", "max", "n");
+    }
+
+    /**
+     * Prints the measurements of every action that was used.
+     *
+     * @param out The stream to print to
+     */
+    public void print(PrintStream out) {
+        out.println(formatHeader());
+        for (int i = 0; i < ACTION_NAMES.length; i++) {
+            if (toTick[i].getCount() == 0) {
+                continue;
+            }
+            out.println(formatLine(ACTION_NAMES[i] + " to tick", toTick[i]));
+            out.println(formatLine(ACTION_NAMES[i] + " to screen", toScreen[i]));
+        }
+    }
+}
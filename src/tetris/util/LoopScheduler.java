@@ -0,0 +1,92 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Waits until the next deadline of the game loop without keeping a core busy.
+ *
+ * Thread.sleep only wakes up to the nearest millisecond or so (much worse on some systems), so waiting is done in three
+ * steps: sleep until SLEEP_MARGIN_NANOS before the deadline, then LockSupport.parkNanos until SPIN_NANOS before it,
+ * then yield until it. Almost all of the wait is spent sleeping, and the last few hundred microseconds make the wake up
+ * precise.
+ *
+ * The scheduler also measures how late every wake up was (the jitter) and how much of the time the loop was waiting
+ * (the idle time), which are shown by the F3 overlay (see GamePanel).
+ */
+package tetris.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+public class LoopScheduler {
+    //Time before a deadline where sleeping stops, as sleep can wake up a few milliseconds late
+    private static final long SLEEP_MARGIN_NANOS = 2000000;
+    //Time before a deadline where parking stops, as parking can wake up a few hundred microseconds late
+    private static final long SPIN_NANOS = 500000;
+    //Length of the window that the idle time is measured over
+    private static final long IDLE_WINDOW_NANOS = 1000000000;
+
+    //How late every wake up was
+    private final LatencyHistogram jitter = new LatencyHistogram();
+
+    //Time spent waiting in the current window, and when the window started
+    private long idleNanos;
+    private long windowStart = System.nanoTime();
+
+    //Percent of the last whole window that was spent waiting
+    //Volatile since it is read when painting the overlay
+    private volatile double idlePercent;
+
+    /**
+     * Waits until a deadline. Returns straight away if it has passed.
+     *
+     * @param deadline The System.nanoTime() to wake up at
+     */
+    public void waitUntil(long deadline) {
+        long start = System.nanoTime();
+        long remaining = deadline - start;
+        if (remaining > 0) {
+            //Sleep for most of the wait
+            if (remaining > SLEEP_MARGIN_NANOS) {
+                try {
+                    Thread.sleep((remaining - SLEEP_MARGIN_NANOS) / 1000000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); //Keep the interrupt for the caller
+                    return;
+                }
+            }
+            //Park for most of what is left
+            remaining = deadline - System.nanoTime();
+            while (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+                remaining = deadline - System.nanoTime();
+            }
+            //Yield for the rest, which is short enough that it doesn't matter that the core is busy
+            while (deadline - System.nanoTime() > 0) {
+                Thread.yield();
+            }
+        }
+
+        long end = System.nanoTime();
+        jitter.record(end - deadline); //Also counts deadlines that had already passed
+        idleNanos += end - start;
+
+        //Every second, remember how much of it was spent waiting
+        if (end - windowStart >= IDLE_WINDOW_NANOS) {
+            idlePercent = 100.0 * idleNanos / (end - windowStart);
+            idleNanos = 0;
+            windowStart = end;
+        }
+    }
+
+    /**
+     * @return How late the loop woke up after every deadline
+     */
+    public LatencyHistogram getJitter() {
+        return jitter;
+    }
+
+    /**
+     * @return The percent of the last second that the loop spent waiting instead of updating and painting
+     */
+    public double getIdlePercent() {
+        return idlePercent;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * A clock driven by a tick count instead of the real time.
+ *
+ * Every call to tick() moves the clock forward by exactly one physics update, so a game driven by this clock gives
+ * the same result whether it is played in real time or simulated as fast as the CPU allows.
+ */
+package tetris.util;
+
+public class TickClock implements Clock {
+    //Number of ticks in one second
+    private final int ticksPerSecond;
+
+    //Number of ticks since the clock was created
+    //Volatile since the render thread reads the time to draw timers
+    private volatile long ticks;
+
+    //Constructor to initialize the clock with the given number of ticks per second
+    public TickClock(int ticksPerSecond) {
+        this.ticksPerSecond = ticksPerSecond;
+        this.ticks = 0;
+    }
+
+    /**
+     * Moves the clock forward by one tick.
+     */
+    public void tick() {
+        ticks++;
+    }
+
+    //Return the number of ticks since the clock was created
+    public long getTicks() {
+        return ticks;
+    }
+
+    //Set the number of ticks, used when restoring a saved game
+    public void setTicks(long ticks) {
+        this.ticks = ticks;
+    }
+
+    //Return the number of ticks in one second
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * Returns the time of the clock in nanoseconds, calculated exactly from the tick count.
+     */
+    @Override
+    public long nanoTime() {
+        return ticks * 1000000000L / ticksPerSecond;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Author: Brian Yan, Aaron Zhang
+ *
+ * Passes the latest of a series of objects from one thread to another without locks or allocation.
+ *
+ * There are three buffers. The producer writes into the back buffer and publishes it, which swaps it with the middle
+ * one. The consumer acquires the latest published buffer, which swaps the middle one with the front one it reads. The
+ * two threads never use the same buffer at the same time, so the consumer always sees a whole buffer, and neither
+ * thread ever waits: if the producer publishes faster than the consumer reads, the older buffers are simply skipped.
+ *
+ * The middle index and a "new buffer" flag are kept in one AtomicInteger, so every swap is a single getAndSet.
+ */
+package tetris.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TripleBuffer<T> {
+    //Set in the middle index when it holds a buffer the consumer hasn't acquired yet
+    private static final int NEW = 4;
+    //Bits of the index of a buffer
+    private static final int INDEX = 3;
+
+    //The three buffers. Java can't create an array of T, so they are stored as Objects
+    private final Object[] buffers;
+
+    //Index of the middle buffer, with the NEW flag
+    private final AtomicInteger middle;
+
+    //Index of the buffer the producer writes, only used by the producer
+    private int back;
+    //Index of the buffer the consumer reads, only used by the consumer
+    private int front;
+
+    /**
+     * Creates a triple buffer. The consumer reads the first buffer until something is published.
+     *
+     * @param first The buffer read first
+     * @param second The second buffer
+     * @param third The third buffer
+     */
+    public TripleBuffer(T first, T second, T third) {
+        buffers = new Object[]{first, second, third};
+        front = 0;
+        middle = new AtomicInteger(1);
+        back = 2;
+    }
+
+    /**
+     * @return The buffer to write the next object into. Only called by the producer
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) buffers[back];
+    }
+
+    /**
+     * Publishes the back buffer, so the consumer gets it on its next acquire. Only called by the producer.
+     * The buffer must not be changed after this, as the producer gets another one to write into.
+     */
+    public void publish() {
+        back = middle.getAndSet(back | NEW) & INDEX;
+    }
+
+    /**
+     * Gets the latest published buffer. Only called by the consumer.
+     * The buffer stays the consumer's until the next acquire, and must not be changed.
+     *
+     * @return The latest buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((middle.get() & NEW) != 0) {
+            front = middle.getAndSet(front) & INDEX;
+        }
+        return (T) buffers[front];
+    }
+}